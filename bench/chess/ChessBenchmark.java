@@ -0,0 +1,120 @@
+package chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+///
+/// Per-call cost of the Chess entry points. Build and run headless with
+///   mvn -P benchmarks package
+///   java -jar target/benchmarks.jar -prof gc
+/// -prof gc adds the allocation rate (gc.alloc.rate.norm = bytes per call) next to each timing.
+///
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBenchmark {
+
+    //Ruy Lopez, first ten plies
+    static final String[] OPENING = {"e2 e4", "e7 e5", "g1 f3", "b8 c6", "f1 b5", "a7 a6", "b5 a4", "g8 f6", "e1 g1", "f8 e7"};
+
+    //Morphy vs the Duke and Count, Paris 1858, ending in mate
+    static final String[] MIDDLEGAME = {"e2 e4", "e7 e5", "g1 f3", "d7 d6", "d2 d4", "c8 g4", "d4 e5", "g4 f3",
+            "d1 f3", "d6 e5", "f1 c4", "g8 f6", "f3 b3", "d8 e7", "b1 c3", "c7 c6", "c1 g5", "b7 b5", "c3 b5", "c6 b5",
+            "c4 b5", "b8 d7", "e1 c1", "a8 d8", "d1 d7", "d8 d7", "h1 d1", "e7 e6", "b5 d7", "f6 d7", "b3 b8", "d7 b8",
+            "d1 d8"};
+
+    //A long game that trades down to a rook and pawns ending
+    static final String[] ENDGAME = {"c2 c3", "b7 b6", "b2 b4", "a7 a6", "h2 h4", "b6 b5", "a2 a3", "a6 a5", "b4 a5",
+            "a8 a5", "d2 d3", "a5 a3", "b1 a3", "c7 c6", "a3 b5", "c6 b5", "e2 e4", "g7 g6", "e4 e5", "f7 f6", "e5 f6",
+            "e7 f6", "c1 a3", "f8 a3", "a1 a3", "g8 h6", "f2 f4", "f6 f5", "d1 e2", "d8 e7", "e2 e7", "e8 e7", "g2 g4",
+            "f5 g4", "d3 d4", "h6 f5", "f1 b5", "f5 d4", "c3 d4", "d7 d5", "f4 f5", "g6 f5", "g1 f3", "g4 f3", "a3 f3",
+            "f5 f4", "f3 f4", "h7 h6", "b5 f1", "h6 h5", "f1 c4", "d5 c4", "h1 h2", "c8 b7", "f4 f3", "b7 f3", "h2 b2",
+            "b8 c6", "d4 d5", "f3 d5", "b2 b3", "c4 b3", "e1 d1", "c6 a7", "d1 c1", "b3 b2", "c1 b2"};
+
+    @State(Scope.Thread)
+    public static class Games {
+        @Param({"opening", "middlegame", "endgame"})
+        public String game;
+
+        String[] moves;
+
+        @Setup
+        public void setup() {
+            moves = game.equals("opening") ? OPENING : game.equals("middlegame") ? MIDDLEGAME : ENDGAME;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Positions {
+        GameSession mated;
+        GameSession checkedNotMated;
+        GameSession middlegame;
+        Board board;
+
+        @Setup
+        public void setup() {
+            mated = playOut(MIDDLEGAME);
+            //15. Bxd7+, black is in check but can take back
+            checkedNotMated = playOut(Arrays.copyOf(MIDDLEGAME, 29));
+            middlegame = playOut(Arrays.copyOf(MIDDLEGAME, 20));
+            board = Board.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        }
+
+        private static GameSession playOut(String[] moves) {
+            GameSession session = new GameSession();
+            for(String move : moves)
+                session.play(move);
+            return session;
+        }
+    }
+
+    //A fresh game played through the whole move list, one play() per move
+    @Benchmark
+    public Object play(Games games) {
+        GameSession session = new GameSession();
+        Object last = null;
+        for(String move : games.moves)
+            last = session.play(move);
+        return last;
+    }
+
+    @Benchmark
+    public boolean checkLegal(Positions positions) {
+        return positions.middlegame.checkLegal("c4 b5");
+    }
+
+    @Benchmark
+    public boolean isCheckMateOnMate(Positions positions) {
+        return positions.mated.isCheckMate();
+    }
+
+    @Benchmark
+    public boolean isCheckMateOnCheck(Positions positions) {
+        return positions.checkedNotMated.isCheckMate();
+    }
+
+    //What findPiece used to do for every square: the piece on it, plus the king lookup
+    @Benchmark
+    public int boardLookup(Positions positions) {
+        Board board = positions.board;
+        int sum = board.kingSquare(Board.WHITE) + board.kingSquare(Board.BLACK);
+        for(int square = 0; square < 64; square++)
+            sum += board.pieceAt(square);
+        return sum;
+    }
+}
@@ -0,0 +1,122 @@
+package chess;
+
+///
+/// Attack lookup tables and the square-attacked query. Instead of asking every enemy piece whether it can reach
+/// a square, we look outward from the square: a knight/king/pawn table lookup and one ray walk per direction.
+///
+
+final class Attacks {
+
+    private static final int[][] KNIGHT_JUMPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    static final long[][] PAWN = new long[2][64]; //squares a pawn of that color on the square attacks
+
+    //RAYS[direction][square] = every square from square (exclusive) to the board edge in that direction.
+    //Directions 0-3 increase the square index, 4-7 decrease it.
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}, {-1, 0}, {0, -1}, {-1, -1}, {1, -1}};
+    private static final long[][] RAYS = new long[8][64];
+
+    //BETWEEN[a][b] = squares strictly between a and b if they share a line, LINE[a][b] = the whole line through both
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        for(int square = 0; square < 64; square++){
+            KNIGHT[square] = jumps(square, KNIGHT_JUMPS);
+            KING[square] = jumps(square, KING_STEPS);
+            PAWN[Board.WHITE][square] = jumps(square, new int[][] {{-1, 1}, {1, 1}});
+            PAWN[Board.BLACK][square] = jumps(square, new int[][] {{-1, -1}, {1, -1}});
+
+            for(int direction = 0; direction < 8; direction++){
+                int file = Board.fileOf(square) + DIRECTIONS[direction][0];
+                int rank = Board.rankOf(square) + DIRECTIONS[direction][1];
+                long between = 0;
+                for(; Board.onBoard(file, rank); file += DIRECTIONS[direction][0], rank += DIRECTIONS[direction][1]){
+                    int to = Board.square(file, rank);
+                    RAYS[direction][square] |= 1L << to;
+                    BETWEEN[square][to] = between;
+                    between |= 1L << to;
+                }
+            }
+        }
+        for(int square = 0; square < 64; square++){
+            for(int direction = 0; direction < 8; direction++){
+                long line = RAYS[direction][square] | RAYS[(direction + 4) % 8][square] | (1L << square);
+                for(long bits = RAYS[direction][square]; bits != 0; bits &= bits - 1)
+                    LINE[square][Long.numberOfTrailingZeros(bits)] = line;
+            }
+        }
+    }
+
+    private Attacks() {}
+
+    private static long jumps(int square, int[][] offsets){
+        long out = 0;
+        for(int[] offset : offsets){
+            int file = Board.fileOf(square) + offset[0];
+            int rank = Board.rankOf(square) + offset[1];
+            if(Board.onBoard(file, rank))
+                out |= 1L << Board.square(file, rank);
+        }
+        return out;
+    }
+
+    //Squares reachable along one ray, stopping at (and including) the first occupied square
+    private static long ray(int direction, int square, long occupied){
+        long attacks = RAYS[direction][square];
+        long blockers = attacks & occupied;
+        if(blockers == 0)
+            return attacks;
+        int first = direction < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+        return attacks ^ RAYS[direction][first];
+    }
+
+    static long rook(int square, long occupied){
+        return ray(0, square, occupied) | ray(1, square, occupied) | ray(4, square, occupied) | ray(5, square, occupied);
+    }
+
+    static long bishop(int square, long occupied){
+        return ray(2, square, occupied) | ray(3, square, occupied) | ray(6, square, occupied) | ray(7, square, occupied);
+    }
+
+    //Every byColor piece attacking square, with occupied standing in for the board's blockers
+    static long attackers(Board board, int square, int byColor, long occupied){
+        long[] pieces = board.pieces;
+        int base = Board.piece(byColor, Board.PAWN);
+        long diagonal = pieces[base + Board.BISHOP] | pieces[base + Board.QUEEN];
+        long straight = pieces[base + Board.ROOK] | pieces[base + Board.QUEEN];
+
+        //A pawn of byColor attacks square exactly when a pawn of the other color on square would attack it back
+        return (PAWN[byColor ^ 1][square] & pieces[base + Board.PAWN]) |
+                (KNIGHT[square] & pieces[base + Board.KNIGHT]) |
+                (KING[square] & pieces[base + Board.KING]) |
+                (bishop(square, occupied) & diagonal) |
+                (rook(square, occupied) & straight);
+    }
+
+    static boolean isSquareAttacked(Board board, int square, int byColor){
+        return attackers(board, square, byColor, board.all) != 0;
+    }
+
+    //Pieces of color that are the only thing standing between their own king and an enemy slider
+    static long pinned(Board board, int color){
+        int king = board.kingSquare(color);
+        if(king == -1)
+            return 0;
+
+        int enemy = Board.piece(color ^ 1, Board.PAWN);
+        long snipers = (bishop(king, 0) & (board.pieces[enemy + Board.BISHOP] | board.pieces[enemy + Board.QUEEN])) |
+                (rook(king, 0) & (board.pieces[enemy + Board.ROOK] | board.pieces[enemy + Board.QUEEN]));
+
+        long pinned = 0;
+        for(; snipers != 0; snipers &= snipers - 1){
+            long between = BETWEEN[king][Long.numberOfTrailingZeros(snipers)] & board.all;
+            if(Long.bitCount(between) == 1)
+                pinned |= between & board.occupied[color];
+        }
+        return pinned;
+    }
+}
@@ -0,0 +1,494 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+///
+/// Internal board representation used by Chess: one 64-bit bitboard per piece type plus a byte mailbox.
+/// Squares are numbered a1 = 0, b1 = 1, ... h1 = 7, a2 = 8, ... h8 = 63.
+///
+
+class Board {
+
+    ///<editor-fold desc = "Piece codes">
+    /// Piece codes: color * 6 + kind, so the kind of any piece is (piece % 6) and its color is (piece / 6)
+
+    static final int WHITE = 0;
+    static final int BLACK = 1;
+
+    static final int PAWN = 0;
+    static final int KNIGHT = 1;
+    static final int BISHOP = 2;
+    static final int ROOK = 3;
+    static final int QUEEN = 4;
+    static final int KING = 5;
+
+    static final int WP = 0, WN = 1, WB = 2, WR = 3, WQ = 4, WK = 5;
+    static final int BP = 6, BN = 7, BB = 8, BR = 9, BQ = 10, BK = 11;
+
+    static final byte EMPTY = -1;
+
+    //Maps our piece codes to the PieceType handed back through ReturnPlay, and back again by ordinal
+    private static final ReturnPiece.PieceType[] TO_TYPE = {
+            ReturnPiece.PieceType.WP, ReturnPiece.PieceType.WN, ReturnPiece.PieceType.WB,
+            ReturnPiece.PieceType.WR, ReturnPiece.PieceType.WQ, ReturnPiece.PieceType.WK,
+            ReturnPiece.PieceType.BP, ReturnPiece.PieceType.BN, ReturnPiece.PieceType.BB,
+            ReturnPiece.PieceType.BR, ReturnPiece.PieceType.BQ, ReturnPiece.PieceType.BK};
+    private static final int[] FROM_TYPE = new int[TO_TYPE.length];
+    private static final ReturnPiece.PieceFile[] FILES = ReturnPiece.PieceFile.values();
+
+    static {
+        for(int piece = 0; piece < TO_TYPE.length; piece++)
+            FROM_TYPE[TO_TYPE[piece].ordinal()] = piece;
+    }
+
+    static int piece(int color, int kind){
+        return color * 6 + kind;
+    }
+
+    static int colorOf(int piece){
+        return piece / 6;
+    }
+
+    static int kindOf(int piece){
+        return piece % 6;
+    }
+
+    static int fromType(ReturnPiece.PieceType type){
+        return FROM_TYPE[type.ordinal()];
+    }
+
+    static ReturnPiece.PieceType toType(int piece){
+        return TO_TYPE[piece];
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Square helpers">
+    /// Square helpers, files and ranks are both 0..7 here
+
+    static final int A1 = 0, C1 = 2, E1 = 4, G1 = 6, H1 = 7;
+    static final int A8 = 56, C8 = 58, E8 = 60, G8 = 62, H8 = 63;
+
+    //Squares a bishop on a1 can reach
+    static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    //Castling rights as bits, so a position's rights fit in one int
+    static final int CASTLE_WK = 1, CASTLE_WQ = 2, CASTLE_BK = 4, CASTLE_BQ = 8;
+
+    static int square(int file, int rank){
+        return rank * 8 + file;
+    }
+
+    static int fileOf(int square){
+        return square & 7;
+    }
+
+    static int rankOf(int square){
+        return square >>> 3;
+    }
+
+    static boolean onBoard(int file, int rank){
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8;
+    }
+
+    ///</editor-fold>
+
+    //Rights lost when a piece moves from or to the square: the king's home square, or a rook's corner
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLE_MASK, CASTLE_WK | CASTLE_WQ | CASTLE_BK | CASTLE_BQ);
+        CASTLE_MASK[A1] &= ~CASTLE_WQ;
+        CASTLE_MASK[E1] &= ~(CASTLE_WK | CASTLE_WQ);
+        CASTLE_MASK[H1] &= ~CASTLE_WK;
+        CASTLE_MASK[A8] &= ~CASTLE_BQ;
+        CASTLE_MASK[E8] &= ~(CASTLE_BK | CASTLE_BQ);
+        CASTLE_MASK[H8] &= ~CASTLE_BK;
+    }
+
+    final long[] pieces = new long[12];
+    final long[] occupied = new long[2];
+    long all;
+    final byte[] mailbox = new byte[64];
+
+    int sideToMove = WHITE;
+    int castleRights = CASTLE_WK | CASTLE_WQ | CASTLE_BK | CASTLE_BQ;
+    int enPassantSquare = -1; //square skipped by a pawn that just moved two ranks, -1 if none
+    int halfmoveClock;        //plies since the last capture or pawn move
+    int fullmoveNumber = 1;   //starts at 1, goes up after each black move
+
+    //Zobrist key of the position, kept up to date by put/remove/makeMove/unmakeMove
+    long hash;
+
+    //Material plus piece-square value, white minus black, for the middlegame and the endgame, and how much non-pawn
+    //material is on the board (see Evaluator). Kept up to date by put/remove so evaluating never re-adds the board.
+    int mgScore;
+    int egScore;
+    int phase;
+
+    //One entry per move made, holding what unmakeMove can't work back out from the move itself:
+    //bits 0-3 captured piece + 1, bits 4-7 castle rights, bits 8-14 en passant square + 1, bits 16-31 halfmove clock
+    private long[] undoStack = new long[256];
+    private long[] hashStack = new long[256];
+    private int undoCount;
+
+    //Pieces giving check to the side to move, and the side to move's pinned pieces. Worked out on first use and
+    //thrown away by put/remove, so asking several times about the same position only costs one computation.
+    private long checkers;
+    private long pinned;
+    private boolean attackInfoStale = true;
+
+    Board(){
+        Arrays.fill(mailbox, EMPTY);
+        hash = Zobrist.CASTLE[castleRights];
+    }
+
+    //Independent copy with the same position and move history, for a search thread to play on
+    Board copy(){
+        Board out = new Board();
+        System.arraycopy(pieces, 0, out.pieces, 0, pieces.length);
+        System.arraycopy(occupied, 0, out.occupied, 0, occupied.length);
+        System.arraycopy(mailbox, 0, out.mailbox, 0, mailbox.length);
+        out.all = all;
+        out.sideToMove = sideToMove;
+        out.castleRights = castleRights;
+        out.enPassantSquare = enPassantSquare;
+        out.halfmoveClock = halfmoveClock;
+        out.fullmoveNumber = fullmoveNumber;
+        out.hash = hash;
+        out.mgScore = mgScore;
+        out.egScore = egScore;
+        out.phase = phase;
+        out.undoStack = undoStack.clone();
+        out.hashStack = hashStack.clone();
+        out.undoCount = undoCount;
+        return out;
+    }
+
+    int pieceAt(int square){
+        return mailbox[square];
+    }
+
+    boolean isEmpty(int square){
+        return mailbox[square] == EMPTY;
+    }
+
+    void put(int piece, int square){
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        occupied[colorOf(piece)] |= bit;
+        all |= bit;
+        mailbox[square] = (byte) piece;
+        hash ^= Zobrist.PIECE_SQUARE[piece][square];
+        mgScore += Evaluator.MIDDLEGAME[piece][square];
+        egScore += Evaluator.ENDGAME[piece][square];
+        phase += Evaluator.PHASE[piece];
+        attackInfoStale = true;
+    }
+
+    //Removes whatever is on the square and returns it, or EMPTY if nothing was there
+    int remove(int square){
+        int piece = mailbox[square];
+        if(piece == EMPTY)
+            return EMPTY;
+
+        long bit = ~(1L << square);
+        pieces[piece] &= bit;
+        occupied[colorOf(piece)] &= bit;
+        all &= bit;
+        mailbox[square] = EMPTY;
+        hash ^= Zobrist.PIECE_SQUARE[piece][square];
+        mgScore -= Evaluator.MIDDLEGAME[piece][square];
+        egScore -= Evaluator.ENDGAME[piece][square];
+        phase -= Evaluator.PHASE[piece];
+        attackInfoStale = true;
+        return piece;
+    }
+
+    ///<editor-fold desc = "Make/unmake">
+    /// Make/Unmake, played in place so trying a move costs no allocation
+
+    //Plays a move produced by MoveGenerator (or encoded the same way), pushing what's needed to take it back
+    void makeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = mailbox[from];
+        int captureSquare = Move.isEnPassant(move) ? square(fileOf(to), rankOf(from)) : to;
+
+        if(undoCount == undoStack.length){
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+            hashStack = Arrays.copyOf(hashStack, undoCount * 2);
+        }
+        hashStack[undoCount] = hash;
+        hash ^= Zobrist.CASTLE[castleRights] ^ enPassantKey();
+
+        int captured = remove(captureSquare);
+        undoStack[undoCount++] = (captured + 1) | (castleRights << 4) | ((long) (enPassantSquare + 1) << 8) |
+                ((long) halfmoveClock << 16);
+        halfmoveClock = captured != EMPTY || kindOf(piece) == PAWN ? 0 : halfmoveClock + 1;
+
+        remove(from);
+        if(Move.promotion(move) != 0)
+            piece = piece(colorOf(piece), Move.promotion(move));
+        put(piece, to);
+
+        //When castling the rook jumps over to the square the king passed through
+        if(Move.isCastle(move))
+            put(remove(to > from ? from + 3 : from - 4), (from + to) / 2);
+
+        castleRights &= CASTLE_MASK[from] & CASTLE_MASK[to];
+        enPassantSquare = (move & Move.DOUBLE_PUSH) != 0 ? (from + to) / 2 : -1;
+        if(sideToMove == BLACK)
+            fullmoveNumber++;
+        sideToMove ^= 1;
+        hash ^= Zobrist.CASTLE[castleRights] ^ enPassantKey() ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    //Takes back the last move made, which has to be the move passed in
+    void unmakeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long undo = undoStack[--undoCount];
+
+        sideToMove ^= 1;
+        if(sideToMove == BLACK)
+            fullmoveNumber--;
+
+        if(Move.isCastle(move))
+            put(remove((from + to) / 2), to > from ? from + 3 : from - 4);
+
+        int piece = remove(to);
+        if(Move.promotion(move) != 0)
+            piece = piece(sideToMove, PAWN);
+        put(piece, from);
+
+        int captured = (int) (undo & 15) - 1;
+        if(captured != EMPTY)
+            put(captured, Move.isEnPassant(move) ? square(fileOf(to), rankOf(from)) : to);
+
+        castleRights = (int) (undo >>> 4) & 15;
+        enPassantSquare = (int) ((undo >>> 8) & 127) - 1;
+        halfmoveClock = (int) (undo >>> 16) & 0xFFFF;
+        hash = hashStack[undoCount];
+    }
+
+    //The en passant file only counts toward the key when the side to move really has a pawn that can take it,
+    //so positions that play out the same hash the same
+    private long enPassantKey(){
+        if(enPassantSquare == -1)
+            return 0;
+
+        int pushed = enPassantSquare + (sideToMove == WHITE ? -8 : 8);
+        long beside = (fileOf(pushed) > 0 ? 1L << (pushed - 1) : 0) | (fileOf(pushed) < 7 ? 1L << (pushed + 1) : 0);
+        return (pieces[piece(sideToMove, PAWN)] & beside) != 0 ? Zobrist.EN_PASSANT_FILE[fileOf(enPassantSquare)] : 0;
+    }
+
+    //Recomputes hash from scratch, for when the position was set up some way other than put/makeMove
+    void rehash(){
+        long key = Zobrist.CASTLE[castleRights] ^ enPassantKey();
+        if(sideToMove == BLACK)
+            key ^= Zobrist.BLACK_TO_MOVE;
+        for(long bits = all; bits != 0; bits &= bits - 1){
+            int square = Long.numberOfTrailingZeros(bits);
+            key ^= Zobrist.PIECE_SQUARE[mailbox[square]][square];
+        }
+        hash = key;
+    }
+
+    //How many times the current position came up before, with the same side to move. Only positions since the last
+    //capture or pawn move can repeat, so at most halfmoveClock entries of the hash stack need looking at.
+    int repetitions(){
+        int count = 0;
+        int limit = Math.min(halfmoveClock, undoCount);
+        for(int back = 2; back <= limit; back += 2){
+            if(hashStack[undoCount - back] == hash)
+                count++;
+        }
+        return count;
+    }
+
+    //Neither side can ever mate: bare kings, a single minor piece, or only bishops that all stand on one square color
+    boolean isInsufficientMaterial(){
+        if((pieces[WP] | pieces[BP] | pieces[WR] | pieces[BR] | pieces[WQ] | pieces[BQ]) != 0)
+            return false;
+        long knights = pieces[WN] | pieces[BN];
+        long bishops = pieces[WB] | pieces[BB];
+        if(Long.bitCount(knights | bishops) <= 1)
+            return true;
+        return knights == 0 && ((bishops & DARK_SQUARES) == 0 || (bishops & ~DARK_SQUARES) == 0);
+    }
+
+    ///</editor-fold>
+
+    long checkers(){
+        refreshAttackInfo();
+        return checkers;
+    }
+
+    long pinned(){
+        refreshAttackInfo();
+        return pinned;
+    }
+
+    private void refreshAttackInfo(){
+        if(!attackInfoStale)
+            return;
+        int king = kingSquare(sideToMove);
+        checkers = king == -1 ? 0 : Attacks.attackers(this, king, sideToMove ^ 1, all);
+        pinned = Attacks.pinned(this, sideToMove);
+        attackInfoStale = false;
+    }
+
+    ///<editor-fold desc = "FEN">
+    /// FEN setup and export
+
+    //Builds a board from a FEN string. The two move counters at the end are optional and default to "0 1".
+    static Board fromFen(String fen){
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 4)
+            throw new IllegalArgumentException("FEN needs at least 4 fields: " + fen);
+
+        Board board = new Board();
+        int file = 0;
+        int rank = 7;
+        for(char c : fields[0].toCharArray()){
+            if(c == '/'){
+                if(file != 8)
+                    throw new IllegalArgumentException("Bad FEN rank: " + fen);
+                rank--;
+                file = 0;
+            } else if(c >= '1' && c <= '8'){
+                file += c - '0';
+            } else {
+                int kind = "pnbrqk".indexOf(Character.toLowerCase(c));
+                if(kind == -1 || !onBoard(file, rank))
+                    throw new IllegalArgumentException("Bad FEN placement: " + fen);
+                board.put(piece(Character.isUpperCase(c) ? WHITE : BLACK, kind), square(file, rank));
+                file++;
+            }
+        }
+        if(rank != 0 || file != 8)
+            throw new IllegalArgumentException("Bad FEN placement: " + fen);
+
+        if(!fields[1].equals("w") && !fields[1].equals("b"))
+            throw new IllegalArgumentException("Bad FEN side to move: " + fen);
+        board.sideToMove = fields[1].equals("w") ? WHITE : BLACK;
+
+        board.castleRights = 0;
+        if(!fields[2].equals("-")){
+            for(char c : fields[2].toCharArray()){
+                int right = "KQkq".indexOf(c);
+                if(right == -1)
+                    throw new IllegalArgumentException("Bad FEN castling: " + fen);
+                board.castleRights |= 1 << right;
+            }
+        }
+        //A right only stands while its king and rook are still on their home squares
+        if(board.mailbox[E1] != WK || board.mailbox[H1] != WR)
+            board.castleRights &= ~CASTLE_WK;
+        if(board.mailbox[E1] != WK || board.mailbox[A1] != WR)
+            board.castleRights &= ~CASTLE_WQ;
+        if(board.mailbox[E8] != BK || board.mailbox[H8] != BR)
+            board.castleRights &= ~CASTLE_BK;
+        if(board.mailbox[E8] != BK || board.mailbox[A8] != BR)
+            board.castleRights &= ~CASTLE_BQ;
+
+        board.enPassantSquare = -1;
+        if(!fields[3].equals("-")){
+            if(fields[3].length() != 2 || !onBoard(fields[3].charAt(0) - 'a', fields[3].charAt(1) - '1'))
+                throw new IllegalArgumentException("Bad FEN en passant square: " + fen);
+            board.enPassantSquare = square(fields[3].charAt(0) - 'a', fields[3].charAt(1) - '1');
+            //The pawn that just double pushed has to be standing past the square, with the square and the one it
+            //started from both empty
+            int behind = board.sideToMove == WHITE ? -8 : 8;
+            int square = board.enPassantSquare;
+            if(rankOf(square) != (board.sideToMove == WHITE ? 5 : 2) || board.mailbox[square] != EMPTY ||
+                    board.mailbox[square - behind] != EMPTY ||
+                    board.mailbox[square + behind] != piece(board.sideToMove ^ 1, PAWN))
+                throw new IllegalArgumentException("Bad FEN en passant square: " + fen);
+        }
+
+        try {
+            board.halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            board.fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad FEN move counters: " + fen);
+        }
+        if(board.halfmoveClock < 0 || board.halfmoveClock > 0xFFFF || board.fullmoveNumber < 1)
+            throw new IllegalArgumentException("Bad FEN move counters: " + fen);
+
+        //Positions the rest of the engine can't make sense of
+        if(Long.bitCount(board.pieces[WK]) != 1 || Long.bitCount(board.pieces[BK]) != 1)
+            throw new IllegalArgumentException("FEN needs exactly one king per side: " + fen);
+        if(((board.pieces[WP] | board.pieces[BP]) & 0xFF000000000000FFL) != 0)
+            throw new IllegalArgumentException("FEN has a pawn on the first or last rank: " + fen);
+        if(Attacks.isSquareAttacked(board, board.kingSquare(board.sideToMove ^ 1), board.sideToMove))
+            throw new IllegalArgumentException("FEN side not to move is in check: " + fen);
+
+        board.rehash();
+        return board;
+    }
+
+    //The position as a full six-field FEN string
+    String toFen(){
+        StringBuilder out = new StringBuilder(90);
+        for(int rank = 7; rank >= 0; rank--){
+            int empty = 0;
+            for(int file = 0; file < 8; file++){
+                int piece = mailbox[square(file, rank)];
+                if(piece == EMPTY){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0)
+                    out.append(empty);
+                empty = 0;
+                char letter = "pnbrqk".charAt(kindOf(piece));
+                out.append(colorOf(piece) == WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if(empty > 0)
+                out.append(empty);
+            if(rank > 0)
+                out.append('/');
+        }
+
+        out.append(sideToMove == WHITE ? " w " : " b ");
+        if(castleRights == 0)
+            out.append('-');
+        for(int right = 0; right < 4; right++){
+            if((castleRights & (1 << right)) != 0)
+                out.append("KQkq".charAt(right));
+        }
+
+        out.append(' ');
+        if(enPassantSquare == -1)
+            out.append('-');
+        else
+            out.append((char) ('a' + fileOf(enPassantSquare))).append((char) ('1' + rankOf(enPassantSquare)));
+
+        return out.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+
+    ///</editor-fold>
+
+    //Square of the given color's king, or -1 if it has no king on the board
+    int kingSquare(int color){
+        long king = pieces[piece(color, KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    //Only called at the ReturnPlay boundary, everything inside Chess works on the bitboards/mailbox
+    ArrayList<ReturnPiece> toReturnPieces(){
+        ArrayList<ReturnPiece> out = new ArrayList<>(Long.bitCount(all));
+        for(long bits = all; bits != 0; bits &= bits - 1){
+            int square = Long.numberOfTrailingZeros(bits);
+            ReturnPiece piece = new ReturnPiece();
+            piece.pieceType = toType(mailbox[square]);
+            piece.pieceFile = FILES[fileOf(square)];
+            piece.pieceRank = rankOf(square) + 1;
+            out.add(piece);
+        }
+        return out;
+    }
+}
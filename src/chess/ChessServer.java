@@ -0,0 +1,378 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+///
+/// Hosts many games over TCP, one GameSession per connection. A single acceptor thread hands new connections out
+/// round robin to a few worker threads, each running its own NIO selector, so thousands of idle games cost a
+/// socket and a session each rather than a thread each.
+///
+/// Line protocol, one request per line and exactly one reply line per request:
+///
+///   e2 e4 [Q] [draw?] | resign    play a move, same syntax as Chess.play. Reply: "<MESSAGE> <board>", where MESSAGE
+///                                 is the ReturnPlay message name, or OK for a plain move
+///   mode fen|delta|snapshot       how move replies give the board: as FEN (the default), or as the hex of a
+///                                 WireFormat delta or snapshot. Reply: "OK <mode>"
+///   new [fen]                     start a new game (from fen if given). Reply: "OK <fen>" or "ERROR <reason>"
+///   fen                           reply "OK <fen>" for the current position
+///   quit                          close the connection
+///
+///   java chess.ChessServer [port] [threads]
+///
+
+public class ChessServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 5213;
+
+    //Longest request line we'll buffer, a FEN is under 100 characters
+    private static final int MAX_LINE = 1024;
+
+    //Millis the acceptor waits after a failed accept, doubling from the first up to the second while failures repeat
+    private static final long MIN_ACCEPT_BACKOFF = 10;
+    private static final long MAX_ACCEPT_BACKOFF = 1000;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocketChannel server;
+    private final Worker[] workers;
+    private final Thread acceptor;
+    private final LegalMoveCache legalMoveCache; //shared by every connection's session, may be null
+    private volatile boolean running = true;
+
+    public ChessServer(InetSocketAddress address, int threads, LegalMoveCache legalMoveCache) throws IOException {
+        this.legalMoveCache = legalMoveCache;
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+
+        workers = new Worker[threads];
+        for(int i = 0; i < threads; i++){
+            workers[i] = new Worker();
+            Thread thread = new Thread(workers[i], "chess-server-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        acceptor = new Thread(this::accept, "chess-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    //Port actually bound, for when the server was started on port 0
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    private void accept(){
+        int next = 0;
+        long backoff = 0; //millis to wait before the next accept, doubled on each failure in a row
+        while(running){
+            try {
+                SocketChannel channel = server.accept();
+                workers[next].add(channel);
+                next = (next + 1) % workers.length;
+                backoff = 0;
+            } catch (IOException e) {
+                if(!running)
+                    return;
+                //A failure that doesn't go away (out of file descriptors, say) would otherwise spin this thread and
+                //flood stderr, so wait longer after each one before trying again
+                backoff = Math.min(MAX_ACCEPT_BACKOFF, Math.max(MIN_ACCEPT_BACKOFF, backoff * 2));
+                System.err.println("chess server: accept failed, retrying in " + backoff + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for(Worker worker : workers)
+            worker.selector.wakeup();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ChessServer server = new ChessServer(new InetSocketAddress(port), threads, new LegalMoveCache(1 << 16));
+        System.out.println("chess server listening on port " + server.port() + " with " + threads + " threads");
+        server.acceptor.join();
+    }
+
+    ///<editor-fold desc = "Workers">
+    /// Selector loops, each owning the connections handed to it
+
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+
+        Worker() throws IOException {
+            selector = Selector.open();
+        }
+
+        void add(SocketChannel channel){
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run(){
+            try {
+                while(running){
+                    selector.select();
+                    register();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while(keys.hasNext()){
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if(key.isValid() && key.isReadable())
+                                connection.read();
+                            if(key.isValid() && key.isWritable())
+                                connection.flush();
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("chess server: worker stopped: " + e.getMessage());
+            } finally {
+                for(SelectionKey key : selector.keys())
+                    ((Connection) key.attachment()).close();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void register(){
+            for(SocketChannel channel = added.poll(); channel != null; channel = added.poll()){
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    Connection connection = new Connection(channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Connections">
+    /// One client: its game, the bytes it has sent that don't make a whole line yet, and replies not yet sent
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final GameSession session = new GameSession(legalMoveCache);
+
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        private ByteBuffer out = ByteBuffer.allocate(256);
+        private final AsciiLine line = new AsciiLine(in.array());
+        private WireFormat.Mode mode = WireFormat.Mode.PIECES; //PIECES here means a FEN, the text form of the piece list
+        private boolean closing;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if(channel.read(in) == -1){
+                close();
+                return;
+            }
+
+            byte[] bytes = in.array();
+            int start = 0;
+            for(int i = 0; i < in.position() && !closing; i++){
+                if(bytes[i] != '\n')
+                    continue;
+                int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                handle(start, end);
+                start = i + 1;
+            }
+
+            //Keep the partial line at the front for next time
+            int remaining = in.position() - start;
+            System.arraycopy(bytes, start, bytes, 0, remaining);
+            in.position(remaining);
+            if(!in.hasRemaining() && !closing){
+                reply("ERROR", "line too long");
+                closing = true;
+            }
+
+            flush();
+        }
+
+        private void handle(int start, int end){
+            line.set(start, end);
+
+            if(line.is("quit")){
+                closing = true;
+            } else if(line.is("fen")){
+                reply("OK", session.fen());
+            } else if(line.is("new")){
+                session.start();
+                reply("OK", session.fen());
+            } else if(line.is("mode fen")){
+                mode = WireFormat.Mode.PIECES;
+                reply("OK", "fen");
+            } else if(line.is("mode delta")){
+                mode = WireFormat.Mode.DELTA;
+                reply("OK", "delta");
+            } else if(line.is("mode snapshot")){
+                mode = WireFormat.Mode.SNAPSHOT;
+                reply("OK", "snapshot");
+            } else if(line.startsWith("new ")){
+                try {
+                    session.start(line.toString().substring(4));
+                    reply("OK", session.fen());
+                } catch (IllegalArgumentException e) {
+                    reply("ERROR", e.getMessage());
+                }
+            } else {
+                ReturnPlay.Message message = session.playMessage(line);
+                String status = message == null ? "OK" : message.name();
+                if(mode == WireFormat.Mode.DELTA)
+                    reply(status, session.lastDelta());
+                else if(mode == WireFormat.Mode.SNAPSHOT)
+                    reply(status, session.snapshot());
+                else
+                    reply(status, session.fen());
+            }
+        }
+
+        private void reply(String status, byte[] board){
+            reserve(status.length() + 2 * board.length + 2);
+            append(status);
+            out.put((byte) ' ');
+            for(byte b : board)
+                out.put(HEX[(b >> 4) & 15]).put(HEX[b & 15]);
+            out.put((byte) '\n');
+        }
+
+        private void reply(String status, String detail){
+            reserve(status.length() + detail.length() + 2);
+            append(status);
+            out.put((byte) ' ');
+            append(detail);
+            out.put((byte) '\n');
+        }
+
+        private void reserve(int length){
+            if(out.remaining() < length){
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + length));
+                out.flip();
+                out = bigger.put(out);
+            }
+        }
+
+        private void append(String text){
+            for(int i = 0; i < text.length(); i++)
+                out.put((byte) text.charAt(i));
+        }
+
+        //Sends what it can. While replies are still queued we stop reading, so a client that never reads its replies
+        //can't make us buffer without bound.
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+
+            if(out.position() > 0)
+                key.interestOps(SelectionKey.OP_WRITE);
+            else if(closing)
+                close();
+            else
+                key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close(){
+            if(key != null)
+                key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    //A window onto the bytes of one request line, so the move parser can read it in place
+    private static final class AsciiLine implements CharSequence {
+        private final byte[] bytes;
+        private int start;
+        private int end;
+
+        AsciiLine(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        void set(int start, int end){
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean is(String word){
+            return end - start == word.length() && startsWith(word);
+        }
+
+        boolean startsWith(String prefix){
+            if(end - start < prefix.length())
+                return false;
+            for(int i = 0; i < prefix.length(); i++){
+                if(Character.toLowerCase((char) bytes[start + i]) != prefix.charAt(i))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    ///</editor-fold>
+}
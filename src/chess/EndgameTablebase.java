@@ -0,0 +1,272 @@
+package chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+///
+/// Perfect play for positions with at most four pieces, kings included, read from a file TablebaseGenerator wrote.
+/// Each table is memory mapped on its own and probed in place, one byte per position, so a probe allocates nothing
+/// and costs one read from the mapping.
+///
+/// A table covers one material signature, written white's pieces then black's, strongest first: "KQK", "KRKP".
+/// Positions where black has the stronger side are looked up in the table for the colors swapped, with the board
+/// mirrored top to bottom.
+///
+/// A table position is the side to move and one square per piece, in signature order with both kings first:
+///   index = side * 64^n + square(piece 0) * 64^(n-1) + ... + square(piece n-1)
+/// and its byte is DRAW (0), INVALID (255) for arrangements that can't come up in a game, or otherwise the distance
+/// to mate in plies plus one: odd when the side to move is getting mated, even when it is the one mating.
+///
+/// Tables know nothing of castling, en passant or the fifty-move rule. Positions with castling rights or an en passant
+/// capture on the board aren't probed.
+///
+
+public final class EndgameTablebase {
+
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+
+    static final int MAX_PIECES = 4;
+    static final int INVALID = 255;
+
+    private static final String LETTERS = "PNBRQK";
+
+    //Tables by the non-king pieces on the board, see materialKey
+    private final Table[] tables = new Table[13 * 13];
+    private final List<String> signatures = new ArrayList<>();
+
+    public EndgameTablebase(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer header = ByteBuffer.allocate(TablebaseGenerator.HEADER_SIZE);
+            readFully(channel, header, 0);
+            int count = header.getInt(4);
+            long directory = header.getLong(8);
+            if(header.getInt(0) != TablebaseGenerator.MAGIC || count < 0 ||
+                    directory + (long) count * TablebaseGenerator.DIRECTORY_ENTRY_SIZE != channel.size())
+                throw new IOException("Not an endgame tablebase: " + file);
+
+            ByteBuffer entries = ByteBuffer.allocate(count * TablebaseGenerator.DIRECTORY_ENTRY_SIZE);
+            readFully(channel, entries, directory);
+            for(int i = 0; i < count; i++){
+                byte[] name = new byte[TablebaseGenerator.SIGNATURE_SIZE];
+                entries.get(name);
+                long offset = entries.getLong();
+                String signature = new String(name, StandardCharsets.US_ASCII).trim();
+                int size = size(signature.length());
+                if(offset < TablebaseGenerator.HEADER_SIZE || offset + size > directory)
+                    throw new IOException("Corrupt endgame tablebase: " + file);
+                add(signature, channel.map(FileChannel.MapMode.READ_ONLY, offset, size));
+            }
+        }
+    }
+
+    //Empty, for TablebaseGenerator to add tables to as it finishes them
+    EndgameTablebase() {}
+
+    //The tablebase named by -Dchess.tablebase, or null if none was given. Search probes it when it is there.
+    public static EndgameTablebase shared() {
+        return Shared.TABLEBASE;
+    }
+
+    private static final class Shared {
+        static final EndgameTablebase TABLEBASE = load(System.getProperty("chess.tablebase"));
+
+        private static EndgameTablebase load(String file){
+            if(file == null)
+                return null;
+            try {
+                return new EndgameTablebase(Path.of(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Endgame tablebase is truncated");
+        }
+        buffer.flip();
+    }
+
+    //Signatures of the tables loaded
+    public List<String> signatures() {
+        return Collections.unmodifiableList(signatures);
+    }
+
+    ///<editor-fold desc = "Probing">
+    /// Probing
+
+    //Result for the side to move: DRAW, a win or loss (see isWin/isLoss/distanceToMate), or UNKNOWN when no table
+    //covers the position
+    int probe(Board board){
+        if(Long.bitCount(board.all) > MAX_PIECES || board.castleRights != 0 || canCaptureEnPassant(board))
+            return UNKNOWN;
+        if(board.isInsufficientMaterial())
+            return DRAW;
+
+        Table table = tables[materialKey(board)];
+        if(table == null)
+            return UNKNOWN;
+        int value = table.values.get(index(board, table)) & 0xFF;
+        return value == INVALID ? UNKNOWN : value;
+    }
+
+    public static boolean isWin(int result){
+        return result > 0 && (result & 1) == 0;
+    }
+
+    public static boolean isLoss(int result){
+        return result > 0 && (result & 1) == 1;
+    }
+
+    //Plies until mate for a win or loss, 0 if the side to move is already mated
+    public static int distanceToMate(int result){
+        return result - 1;
+    }
+
+    private static boolean canCaptureEnPassant(Board board){
+        int square = board.enPassantSquare;
+        int color = board.sideToMove;
+        return square != -1 && (Attacks.PAWN[color ^ 1][square] & board.pieces[Board.piece(color, Board.PAWN)]) != 0;
+    }
+
+    //The non-king piece codes on the board in ascending order, one base-13 digit (code + 1) each. With at most
+    //MAX_PIECES pieces there are no more than two of them.
+    private static int materialKey(Board board){
+        int key = 0;
+        for(int piece = 0; piece < 12; piece++){
+            if(Board.kindOf(piece) == Board.KING)
+                continue;
+            for(int n = Long.bitCount(board.pieces[piece]); n > 0; n--)
+                key = key * 13 + piece + 1;
+        }
+        return key;
+    }
+
+    private static int index(Board board, Table table){
+        int index = table.flipped ? board.sideToMove ^ 1 : board.sideToMove;
+        long used = 0; //two pieces of the same kind take their squares in ascending order
+        for(int piece : table.slots){
+            long bits = table.flipped ? Long.reverseBytes(board.pieces[flip(piece)]) : board.pieces[piece];
+            int square = Long.numberOfTrailingZeros(bits & ~used);
+            used |= 1L << square;
+            index = (index << 6) | square;
+        }
+        return index;
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Signatures">
+    /// Material signatures
+
+    void add(String signature, ByteBuffer values){
+        int[] slots = slots(signature);
+        int[] flipped = new int[slots.length];
+        for(int i = 0; i < slots.length; i++)
+            flipped[i] = flip(slots[i]);
+
+        tables[materialKey(slots)] = new Table(values, slots, false);
+        if(tables[materialKey(flipped)] == null)
+            tables[materialKey(flipped)] = new Table(values, slots, true);
+        signatures.add(signature);
+    }
+
+    private static int materialKey(int[] slots){
+        int[] codes = slots.clone();
+        Arrays.sort(codes);
+        int key = 0;
+        for(int piece : codes){
+            if(Board.kindOf(piece) != Board.KING)
+                key = key * 13 + piece + 1;
+        }
+        return key;
+    }
+
+    //Positions in a table of that many pieces
+    static int size(int pieces){
+        return 2 << (6 * pieces);
+    }
+
+    //Piece codes in table order: white king, black king, white's other pieces, black's other pieces
+    static int[] slots(String signature){
+        int split = signature.indexOf('K', 1);
+        if(signature.isEmpty() || signature.charAt(0) != 'K' || split == -1 || signature.length() > MAX_PIECES)
+            throw new IllegalArgumentException("Not an endgame signature: " + signature);
+
+        int[] out = new int[signature.length()];
+        out[0] = Board.piece(Board.WHITE, Board.KING);
+        out[1] = Board.piece(Board.BLACK, Board.KING);
+        int next = 2;
+        for(int i = 1; i < signature.length(); i++){
+            if(i == split)
+                continue;
+            int kind = LETTERS.indexOf(signature.charAt(i));
+            if(kind == -1 || kind == Board.KING)
+                throw new IllegalArgumentException("Not an endgame signature: " + signature);
+            out[next++] = Board.piece(i < split ? Board.WHITE : Board.BLACK, kind);
+        }
+        return out;
+    }
+
+    //The signature the table for this material is stored under: each side's pieces strongest first, and the side with
+    //more material (or the higher pieces, on equal material) as white
+    static String canonical(String signature){
+        int split = signature.indexOf('K', 1);
+        if(split == -1)
+            throw new IllegalArgumentException("Not an endgame signature: " + signature);
+        String white = sorted(signature.substring(1, split));
+        String black = sorted(signature.substring(split + 1));
+        if(strength(black) > strength(white) || (strength(black) == strength(white) && black.compareTo(white) > 0))
+            return "K" + black + "K" + white;
+        return "K" + white + "K" + black;
+    }
+
+    private static String sorted(String pieces){
+        char[] letters = pieces.toCharArray();
+        for(int i = 1; i < letters.length; i++){
+            for(int j = i; j > 0 && LETTERS.indexOf(letters[j]) > LETTERS.indexOf(letters[j - 1]); j--){
+                char swap = letters[j];
+                letters[j] = letters[j - 1];
+                letters[j - 1] = swap;
+            }
+        }
+        return new String(letters);
+    }
+
+    private static int strength(String pieces){
+        int total = 0;
+        for(int i = 0; i < pieces.length(); i++)
+            total += Evaluator.VALUE[LETTERS.indexOf(pieces.charAt(i))];
+        return total;
+    }
+
+    static int flip(int piece){
+        return Board.piece(Board.colorOf(piece) ^ 1, Board.kindOf(piece));
+    }
+
+    ///</editor-fold>
+
+    private static final class Table {
+        final ByteBuffer values;
+        final int[] slots;      //piece codes in table order
+        final boolean flipped;  //looked up with colors swapped and the board mirrored
+
+        Table(ByteBuffer values, int[] slots, boolean flipped) {
+            this.values = values;
+            this.slots = slots;
+            this.flipped = flipped;
+        }
+    }
+}
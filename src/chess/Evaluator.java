@@ -0,0 +1,241 @@
+package chess;
+
+///
+/// Static evaluation in centipawns. Material and piece-square terms are kept up to date by Board.put/remove (see
+/// Board.mgScore/egScore/phase), so evaluate() only has to work out the terms that depend on how pieces relate to
+/// each other: mobility, king safety and pawn structure.
+///
+/// Everything is scored twice, for the middlegame and the endgame, and blended by how much non-pawn material is
+/// left (phase 24 with all of it on the board, 0 with none). Piece-square tables are the "simplified evaluation
+/// function" ones, written from white's side with rank 8 on the top line; black reads them mirrored.
+///
+
+final class Evaluator {
+
+    static final int[] VALUE = {100, 320, 330, 500, 900, 0};
+
+    //How much each piece counts toward the game phase
+    static final int[] PHASE = {0, 1, 1, 2, 4, 0, 0, 1, 1, 2, 4, 0};
+    static final int MAX_PHASE = 24;
+
+    ///<editor-fold desc = "Piece-square tables">
+    /// Piece-square tables
+
+    private static final int[] PAWN_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+            50,  50,  50,  50,  50,  50,  50,  50,
+            10,  10,  20,  30,  30,  20,  10,  10,
+             5,   5,  10,  25,  25,  10,   5,   5,
+             0,   0,   0,  20,  20,   0,   0,   0,
+             5,  -5, -10,   0,   0, -10,  -5,   5,
+             5,  10,  10, -20, -20,  10,  10,   5,
+             0,   0,   0,   0,   0,   0,   0,   0};
+
+    private static final int[] KNIGHT_TABLE = {
+           -50, -40, -30, -30, -30, -30, -40, -50,
+           -40, -20,   0,   0,   0,   0, -20, -40,
+           -30,   0,  10,  15,  15,  10,   0, -30,
+           -30,   5,  15,  20,  20,  15,   5, -30,
+           -30,   0,  15,  20,  20,  15,   0, -30,
+           -30,   5,  10,  15,  15,  10,   5, -30,
+           -40, -20,   0,   5,   5,   0, -20, -40,
+           -50, -40, -30, -30, -30, -30, -40, -50};
+
+    private static final int[] BISHOP_TABLE = {
+           -20, -10, -10, -10, -10, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,  10,  10,   5,   0, -10,
+           -10,   5,   5,  10,  10,   5,   5, -10,
+           -10,   0,  10,  10,  10,  10,   0, -10,
+           -10,  10,  10,  10,  10,  10,  10, -10,
+           -10,   5,   0,   0,   0,   0,   5, -10,
+           -20, -10, -10, -10, -10, -10, -10, -20};
+
+    private static final int[] ROOK_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+             5,  10,  10,  10,  10,  10,  10,   5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+             0,   0,   0,   5,   5,   0,   0,   0};
+
+    private static final int[] QUEEN_TABLE = {
+           -20, -10, -10,  -5,  -5, -10, -10, -20,
+           -10,   0,   0,   0,   0,   0,   0, -10,
+           -10,   0,   5,   5,   5,   5,   0, -10,
+            -5,   0,   5,   5,   5,   5,   0,  -5,
+             0,   0,   5,   5,   5,   5,   0,  -5,
+           -10,   5,   5,   5,   5,   5,   0, -10,
+           -10,   0,   5,   0,   0,   0,   0, -10,
+           -20, -10, -10,  -5,  -5, -10, -10, -20};
+
+    //Tucked away behind its pawns while there are pieces around to attack it
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -30, -40, -40, -50, -50, -40, -40, -30,
+           -20, -30, -30, -40, -40, -30, -30, -20,
+           -10, -20, -20, -20, -20, -20, -20, -10,
+            20,  20,   0,   0,   0,   0,  20,  20,
+            20,  30,  10,   0,   0,  10,  30,  20};
+
+    //Out in the middle once the board has emptied
+    private static final int[] KING_ENDGAME_TABLE = {
+           -50, -40, -30, -20, -20, -30, -40, -50,
+           -30, -20, -10,   0,   0, -10, -20, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  30,  40,  40,  30, -10, -30,
+           -30, -10,  20,  30,  30,  20, -10, -30,
+           -30, -30,   0,   0,   0,   0, -30, -30,
+           -50, -30, -30, -30, -30, -30, -30, -50};
+
+    private static final int[][] MIDDLEGAME_TABLES = {PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLEGAME_TABLE};
+    private static final int[][] ENDGAME_TABLES = {PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_ENDGAME_TABLE};
+
+    //Material plus table value of each piece on each square, positive for white and negative for black
+    static final int[][] MIDDLEGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        for(int kind = Board.PAWN; kind <= Board.KING; kind++){
+            for(int square = 0; square < 64; square++){
+                int file = Board.fileOf(square);
+                int rank = Board.rankOf(square);
+                int white = (7 - rank) * 8 + file;
+                int black = rank * 8 + file;
+                MIDDLEGAME[Board.piece(Board.WHITE, kind)][square] = VALUE[kind] + MIDDLEGAME_TABLES[kind][white];
+                MIDDLEGAME[Board.piece(Board.BLACK, kind)][square] = -VALUE[kind] - MIDDLEGAME_TABLES[kind][black];
+                ENDGAME[Board.piece(Board.WHITE, kind)][square] = VALUE[kind] + ENDGAME_TABLES[kind][white];
+                ENDGAME[Board.piece(Board.BLACK, kind)][square] = -VALUE[kind] - ENDGAME_TABLES[kind][black];
+            }
+        }
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Positional terms">
+    /// Weights for the terms worked out on every call
+
+    //Per square a piece attacks that isn't blocked by its own side, by kind
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 4, 5, 4, 2, 0};
+
+    private static final int SHIELD_PAWN = 10;      //own pawn on one of the three squares right in front of the king
+    private static final int KING_ZONE_ATTACK = 8;  //enemy attack on a square next to the king, middlegame only
+
+    private static final int DOUBLED_PAWN = 15;
+    private static final int ISOLATED_PAWN = 12;
+    //Passed pawn bonus by how many ranks it has moved up
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long RANK_1 = 0xFFL;
+
+    ///</editor-fold>
+
+    private Evaluator() {}
+
+    //Score of the position from the side to move's point of view
+    static int evaluate(Board board){
+        //Middlegame and endgame totals, white minus black
+        int[] score = {board.mgScore, board.egScore};
+        for(int color = Board.WHITE; color <= Board.BLACK; color++){
+            int sign = color == Board.WHITE ? 1 : -1;
+            mobility(board, color, sign, score);
+            kingSafety(board, color, sign, score);
+            pawns(board, color, sign, score);
+        }
+
+        int phase = Math.min(board.phase, MAX_PHASE);
+        int blended = (score[0] * phase + score[1] * (MAX_PHASE - phase)) / MAX_PHASE;
+        return board.sideToMove == Board.WHITE ? blended : -blended;
+    }
+
+    private static void mobility(Board board, int color, int sign, int[] score){
+        long own = board.occupied[color];
+        int base = Board.piece(color, Board.PAWN);
+        for(int kind = Board.KNIGHT; kind <= Board.QUEEN; kind++){
+            for(long bits = board.pieces[base + kind]; bits != 0; bits &= bits - 1){
+                int square = Long.numberOfTrailingZeros(bits);
+                int reach = Long.bitCount(attacks(kind, square, board.all) & ~own);
+                score[0] += sign * reach * MOBILITY_MIDDLEGAME[kind];
+                score[1] += sign * reach * MOBILITY_ENDGAME[kind];
+            }
+        }
+    }
+
+    //Pawn cover in front of the king and enemy pressure around it. Both matter only while there is material to
+    //attack with, so they count toward the middlegame score alone.
+    private static void kingSafety(Board board, int color, int sign, int[] score){
+        int king = board.kingSquare(color);
+        if(king == -1)
+            return;
+
+        int shieldRank = Board.rankOf(king) + (color == Board.WHITE ? 1 : -1);
+        if(shieldRank >= 0 && shieldRank < 8){
+            long shield = Attacks.KING[king] & (RANK_1 << (8 * shieldRank));
+            score[0] += sign * SHIELD_PAWN * Long.bitCount(shield & board.pieces[Board.piece(color, Board.PAWN)]);
+        }
+
+        long zone = Attacks.KING[king];
+        int enemy = Board.piece(color ^ 1, Board.PAWN);
+        int pressure = 0;
+        for(int kind = Board.KNIGHT; kind <= Board.QUEEN; kind++){
+            for(long bits = board.pieces[enemy + kind]; bits != 0; bits &= bits - 1)
+                pressure += Long.bitCount(attacks(kind, Long.numberOfTrailingZeros(bits), board.all) & zone);
+        }
+        score[0] -= sign * KING_ZONE_ATTACK * pressure;
+    }
+
+    private static void pawns(Board board, int color, int sign, int[] score){
+        long own = board.pieces[Board.piece(color, Board.PAWN)];
+        long enemy = board.pieces[Board.piece(color ^ 1, Board.PAWN)];
+
+        for(int file = 0; file < 8; file++){
+            int onFile = Long.bitCount(own & (FILE_A << file));
+            if(onFile > 1){
+                score[0] -= sign * DOUBLED_PAWN * (onFile - 1);
+                score[1] -= sign * DOUBLED_PAWN * (onFile - 1);
+            }
+        }
+
+        for(long bits = own; bits != 0; bits &= bits - 1){
+            int square = Long.numberOfTrailingZeros(bits);
+            int file = Board.fileOf(square);
+            int rank = Board.rankOf(square);
+            long neighbours = (file > 0 ? FILE_A << (file - 1) : 0) | (file < 7 ? FILE_A << (file + 1) : 0);
+            if((own & neighbours) == 0){
+                score[0] -= sign * ISOLATED_PAWN;
+                score[1] -= sign * ISOLATED_PAWN;
+            }
+
+            //Passed when no enemy pawn stands on a rank ahead of it, on its own file or either neighbouring one.
+            //Pawns never stand on the back ranks, so the shifts stay inside the board.
+            long span = (FILE_A << file) | neighbours;
+            long ahead = color == Board.WHITE ? -1L << (8 * (rank + 1)) : (1L << (8 * rank)) - 1;
+            if((enemy & span & ahead) == 0){
+                int advanced = color == Board.WHITE ? rank : 7 - rank;
+                score[0] += sign * PASSED_MIDDLEGAME[advanced];
+                score[1] += sign * PASSED_ENDGAME[advanced];
+            }
+        }
+    }
+
+    private static long attacks(int kind, int square, long occupied){
+        switch(kind){
+            case Board.KNIGHT:
+                return Attacks.KNIGHT[square];
+            case Board.BISHOP:
+                return Attacks.bishop(square, occupied);
+            case Board.ROOK:
+                return Attacks.rook(square, occupied);
+            default:
+                return Attacks.bishop(square, occupied) | Attacks.rook(square, occupied);
+        }
+    }
+}
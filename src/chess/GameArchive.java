@@ -0,0 +1,169 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+///
+/// Read side of the archive format GameArchiveWriter describes. The whole file is memory mapped and the index at the
+/// end points straight at each game, so loading game N (or the position N moves into it) touches only that game's
+/// bytes, never the rest of the file.
+///
+/// The file is mapped in 1 GB chunks since a single mapping tops out at 2 GB. Everything is read with absolute
+/// gets and nothing changes after open, so any number of threads can read the same archive at once, each with its
+/// own GameSession.
+///
+
+public class GameArchive {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long gameCount;
+    private final long indexOffset;
+
+    public GameArchive(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for(int i = 0; i < chunks.length; i++){
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << CHUNK_BITS));
+            }
+
+            if(size < GameArchiveWriter.HEADER_SIZE || readInt(0) != GameArchiveWriter.MAGIC)
+                throw new IOException("Not a game archive: " + file);
+            gameCount = readLong(4);
+            indexOffset = readLong(12);
+            if(gameCount < 0 || indexOffset < GameArchiveWriter.HEADER_SIZE || indexOffset + gameCount * 8 != size)
+                throw new IOException("Corrupt game archive: " + file);
+        }
+    }
+
+    public long size() {
+        return gameCount;
+    }
+
+    //FEN the game starts from, null for the usual starting position
+    public String fen(long game) {
+        return new Cursor(game).fen();
+    }
+
+    //The game's moves in the "e2 e4" format Chess.play takes
+    public List<String> moves(long game) {
+        Cursor cursor = new Cursor(game);
+        List<String> out = new ArrayList<>();
+        try {
+            for(int move = cursor.nextMove(); move != -1; move = cursor.nextMove()){
+                if(move == MoveCodec.RESIGN)
+                    out.add("resign");
+                else
+                    out.add(Move.toString(move) + ((move & MoveCodec.DRAW_OFFER) != 0 ? " draw?" : ""));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out;
+    }
+
+    //Replays the whole game on session, see GameSession.replay
+    public ReplayResult replay(long game, GameSession session) {
+        return replay(game, Integer.MAX_VALUE, session);
+    }
+
+    //Sets session up at the position moves moves into the game (or where the game stops, if that's sooner)
+    public ReplayResult replay(long game, int moves, GameSession session) {
+        try {
+            return session.replay(new Cursor(game), moves);
+        } catch (IOException e) {
+            //Cursor reads from memory and only throws on a corrupt game
+            throw new IllegalStateException(e);
+        }
+    }
+
+    ///<editor-fold desc = "Mapped reads">
+    /// Absolute reads that work across chunk boundaries
+
+    private int readByte(long position){
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK)) & 0xFF;
+    }
+
+    private int readShort(long position){
+        return (readByte(position) << 8) | readByte(position + 1);
+    }
+
+    private int readInt(long position){
+        return (readShort(position) << 16) | readShort(position + 2);
+    }
+
+    private long readLong(long position){
+        ByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        int offset = (int) (position & CHUNK_MASK);
+        if(offset + 8 <= chunk.limit())
+            return chunk.getLong(offset);
+        return ((long) readInt(position) << 32) | (readInt(position + 4) & 0xFFFFFFFFL);
+    }
+
+    ///</editor-fold>
+
+    //Walks one game's bytes. Cheap enough to make one per call, and private to whoever made it.
+    private final class Cursor implements RecordedGame {
+        private final long game;
+        private long position;
+        private final long end; //where the next game starts, or the index for the last one
+        private final String fen;
+        private boolean ended;  //read the END marker
+
+        Cursor(long game) {
+            if(game < 0 || game >= gameCount)
+                throw new IndexOutOfBoundsException("No game " + game + " in an archive of " + gameCount);
+            this.game = game;
+            position = readLong(indexOffset + game * 8);
+            end = game + 1 < gameCount ? readLong(indexOffset + (game + 1) * 8) : indexOffset;
+            if(position < GameArchiveWriter.HEADER_SIZE || position >= end || end > indexOffset)
+                throw new IllegalStateException("Corrupt game archive: bad index entry for game " + game);
+
+            int start = readByte(position++);
+            if(start == GameRecordWriter.START_FEN){
+                if(position + 2 > end)
+                    throw new IllegalStateException("Corrupt game archive: game " + game + " runs past its end");
+                int length = readShort(position);
+                position += 2;
+                if(position + length > end)
+                    throw new IllegalStateException("Corrupt game archive: game " + game + " runs past its end");
+                char[] chars = new char[length];
+                for(int i = 0; i < length; i++)
+                    chars[i] = (char) readByte(position++);
+                fen = new String(chars);
+            } else if(start == GameRecordWriter.START_POSITION)
+                fen = null;
+            else
+                throw new IllegalStateException("Corrupt game archive: bad start byte " + start + " for game " + game);
+        }
+
+        @Override
+        public String fen() {
+            return fen;
+        }
+
+        //Every game ends in END before the next one starts, so running into the end without it means the archive
+        //is corrupt rather than that the game is over
+        @Override
+        public int nextMove() throws IOException {
+            if(ended)
+                return -1;
+            if(position + 2 > end)
+                throw new IOException("Corrupt game archive: game " + game + " has no end marker");
+            int move = GameRecordReader.decode(readShort(position));
+            position += 2;
+            ended = move == -1;
+            return move;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+///
+/// Builds a GameArchive file:
+///
+///   header  "CHA1", game count (8 bytes), index offset (8 bytes)
+///   games   back to back, each one exactly as a GameRecordWriter game (start byte, optional FEN, 16-bit moves, END)
+///   index   one 8-byte file offset per game, in the order the games were written
+///
+/// The header is filled in by close(), so a file that was never closed won't open as an archive.
+///
+
+public class GameArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x43484131; //"CHA1"
+    static final int HEADER_SIZE = 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long position = HEADER_SIZE; //file offset buffer's first byte goes to
+
+    private long[] offsets = new long[1024];
+    private long gameCount;
+
+    public GameArchiveWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        channel.position(HEADER_SIZE);
+    }
+
+    //Adds a game from the usual starting position and returns its number in the archive
+    public long writeGame(List<String> moves) throws IOException {
+        return writeGame(null, moves);
+    }
+
+    //Adds a game starting from fen (null for the usual starting position) and returns its number in the archive
+    public long writeGame(String fen, List<String> moves) throws IOException {
+        //Encode everything up front so a bad move throws before any of the game reaches the file
+        int[] encoded = new int[moves.size()];
+        for(int i = 0; i < encoded.length; i++){
+            int input = MoveCodec.parse(moves.get(i));
+            if(input == MoveCodec.INVALID)
+                throw new IllegalArgumentException("Not a move: " + moves.get(i));
+            encoded[i] = GameRecordWriter.encode(input);
+        }
+        //The archive stores a FEN a byte per character, and getBytes would quietly turn anything else into '?'
+        if(fen != null && !StandardCharsets.US_ASCII.newEncoder().canEncode(fen))
+            throw new IllegalArgumentException("FEN isn't ASCII: " + fen);
+        byte[] fenBytes = fen == null ? null : fen.getBytes(StandardCharsets.US_ASCII);
+        if(fenBytes != null && fenBytes.length > 0xFFFF)
+            throw new IllegalArgumentException("FEN too long");
+
+        if(gameCount == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[(int) gameCount] = position + buffer.position();
+
+        if(fenBytes == null)
+            put((byte) GameRecordWriter.START_POSITION);
+        else {
+            put((byte) GameRecordWriter.START_FEN);
+            putShort(fenBytes.length);
+            for(byte b : fenBytes)
+                put(b);
+        }
+        for(int move : encoded)
+            putShort(move);
+        putShort(GameRecordWriter.END);
+
+        return gameCount++;
+    }
+
+    private void put(byte b) throws IOException {
+        if(!buffer.hasRemaining())
+            drain();
+        buffer.put(b);
+    }
+
+    private void putShort(int value) throws IOException {
+        if(buffer.remaining() < 2)
+            drain();
+        buffer.putShort((short) value);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            position += channel.write(buffer);
+        buffer.clear();
+    }
+
+    //Writes the index and the header. The archive can be opened once this returns.
+    @Override
+    public void close() throws IOException {
+        try {
+            long indexOffset = position + buffer.position();
+            for(int i = 0; i < gameCount; i++){
+                if(buffer.remaining() < 8)
+                    drain();
+                buffer.putLong(offsets[i]);
+            }
+            drain();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putLong(gameCount).putLong(indexOffset).flip();
+            while(header.hasRemaining())
+                channel.write(header, header.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
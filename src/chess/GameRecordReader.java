@@ -0,0 +1,87 @@
+package chess;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+///
+/// Reads the binary game records GameRecordWriter writes (the format is described there). replayNext plays each game
+/// straight into a GameSession without ever going through text; nextGame/nextMove walk the records by hand.
+///
+
+public class GameRecordReader implements Closeable, RecordedGame {
+
+    private final DataInputStream in;
+    private String fen;
+    private boolean inGame;
+
+    public GameRecordReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if(this.in.readInt() != GameRecordWriter.MAGIC)
+            throw new IOException("Not a game record file");
+    }
+
+    //Replays the next game on session (see GameSession.replay), or returns null once there are no more games
+    public ReplayResult replayNext(GameSession session) throws IOException {
+        if(!nextGame())
+            return null;
+        return session.replay(this, Integer.MAX_VALUE);
+    }
+
+    //Moves on to the next game, skipping whatever is left of the current one. False at the end of the file.
+    public boolean nextGame() throws IOException {
+        while(inGame)
+            nextMove();
+
+        int start = in.read();
+        if(start == -1)
+            return false;
+        if(start == GameRecordWriter.START_FEN)
+            fen = in.readUTF();
+        else if(start == GameRecordWriter.START_POSITION)
+            fen = null;
+        else
+            throw new IOException("Corrupt game record: bad start byte " + start);
+        inGame = true;
+        return true;
+    }
+
+    @Override
+    public String fen() {
+        return fen;
+    }
+
+    @Override
+    public int nextMove() throws IOException {
+        if(!inGame)
+            return -1;
+
+        int move;
+        try {
+            move = in.readUnsignedShort();
+        } catch (EOFException e) {
+            throw new IOException("Corrupt game record: file ends in the middle of a game", e);
+        }
+
+        if(move == GameRecordWriter.END)
+            inGame = false;
+        return decode(move);
+    }
+
+    //Undoes GameRecordWriter.encode, -1 for the END marker
+    static int decode(int move){
+        if(move == GameRecordWriter.END)
+            return -1;
+        if(move == GameRecordWriter.RESIGN)
+            return MoveCodec.RESIGN;
+        return (move & 0x7FFF) | ((move & GameRecordWriter.DRAW_OFFER) != 0 ? MoveCodec.DRAW_OFFER : 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
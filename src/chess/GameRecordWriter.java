@@ -0,0 +1,105 @@
+package chess;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+///
+/// Writes games in the compact binary record format GameRecordReader reads back:
+///
+///   file    "CHG1", then games back to back
+///   game    1 byte start (0 = usual starting position, 1 = a UTF FEN follows), the moves, then the 16-bit END
+///   move    16 bits, big-endian: bits 0-14 from/to/promotion exactly as Move packs them, bit 15 a draw offer
+///
+/// A move never goes from a square to itself, so from == to is free for markers: a1 a1 (0) ends a game and b1 b1
+/// stands for "resign". That's 2 bytes a move against 6-12 for the text lines, and no parsing to read it back.
+///
+
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x43484731; //"CHG1"
+
+    static final int START_POSITION = 0;
+    static final int START_FEN = 1;
+
+    static final int END = 0;
+    static final int RESIGN = 1 | (1 << 6);
+    static final int DRAW_OFFER = 1 << 15;
+
+    private final DataOutputStream out;
+    private boolean inGame;
+
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+    }
+
+    //A whole game from the usual starting position, in the "e2 e4" format Chess.play takes
+    public void writeGame(List<String> moves) throws IOException {
+        writeGame(null, moves);
+    }
+
+    //A whole game starting from fen (null for the usual starting position)
+    public void writeGame(String fen, List<String> moves) throws IOException {
+        startGame(fen);
+        for(String move : moves)
+            writeMove(move);
+        endGame();
+    }
+
+    //Streaming form of writeGame: startGame, any number of writeMove, endGame
+    public void startGame(String fen) throws IOException {
+        if(inGame)
+            throw new IllegalStateException("startGame called before the last game was ended");
+        inGame = true;
+        if(fen == null)
+            out.writeByte(START_POSITION);
+        else {
+            out.writeByte(START_FEN);
+            out.writeUTF(fen);
+        }
+    }
+
+    //Throws IllegalArgumentException if the text isn't something Chess.play could ever accept
+    public void writeMove(String move) throws IOException {
+        int input = MoveCodec.parse(move);
+        if(input == MoveCodec.INVALID)
+            throw new IllegalArgumentException("Not a move: " + move);
+        writeMove(input);
+    }
+
+    //Same as writeMove(String) for a move that already went through MoveCodec.parse (or a Move from MoveGenerator)
+    void writeMove(int input) throws IOException {
+        if(!inGame)
+            throw new IllegalStateException("writeMove called outside a game");
+        out.writeShort(encode(input));
+    }
+
+    //The 16 bits a MoveCodec.parse result is stored as
+    static int encode(int input){
+        if(input == MoveCodec.RESIGN)
+            return RESIGN;
+        if(input < 0 || Move.from(input) == Move.to(input))
+            throw new IllegalArgumentException("Not a move: " + input);
+        return (input & 0x7FFF) | ((input & MoveCodec.DRAW_OFFER) != 0 ? DRAW_OFFER : 0);
+    }
+
+    public void endGame() throws IOException {
+        if(!inGame)
+            throw new IllegalStateException("endGame called outside a game");
+        out.writeShort(END);
+        inGame = false;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
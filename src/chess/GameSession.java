@@ -0,0 +1,578 @@
+package chess;
+
+import chess.Chess.Player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+///
+/// One game of chess: the board, whose turn it is, castling rights and the en passant square.
+/// Sessions share nothing, so any number of them can run side by side on different threads. Each session
+/// expects a single writer at a time; play/start are synchronized on the session so a game can be handed
+/// from one thread to the next without any extra fencing.
+///
+
+public class GameSession {
+
+    ///<editor-fold desc = "Session state">
+    /// Session State
+
+    //Side to move, castling rights and the en passant square all live on the board so make/unmake can restore them
+    private Board currentBoardState;
+
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES]; //reused for every end-of-move scan
+
+    private final LegalMoveCache legalMoveCache; //null unless one was handed in
+
+    private WireFormat.Mode returnFormat = WireFormat.Mode.PIECES;
+    private int lastMove; //move the current play() made, 0 if it didn't make one
+    private Search search; //made the first time someone asks for an engine move
+
+    public GameSession() {
+        this(null);
+    }
+
+    //Validates moves against legalMoveCache, which may be shared with other sessions, instead of from scratch
+    public GameSession(LegalMoveCache legalMoveCache) {
+        this.legalMoveCache = legalMoveCache;
+        start();
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Small helper funcs">
+    /// Small Helper Functions
+
+    private static int colorOf(Player player){
+        return player == Player.white ? Board.WHITE : Board.BLACK;
+    }
+
+    private static Player opponentOf(Player player){
+        return player == Player.white ? Player.black : Player.white;
+    }
+
+    private static boolean isBlack(int piece){
+        return piece != Board.EMPTY && Board.colorOf(piece) == Board.BLACK;
+    }
+
+    private static boolean isWhite(int piece){
+        return piece != Board.EMPTY && Board.colorOf(piece) == Board.WHITE;
+    }
+
+    private Player currentPlayer(){
+        return currentBoardState.sideToMove == Board.WHITE ? Player.white : Player.black;
+    }
+
+    private static boolean isOpponent(int piece, Player playerIn){
+        return (playerIn == Player.white && isBlack(piece)) || (playerIn == Player.black && isWhite(piece));
+    }
+
+    private ReturnPlay result(ReturnPlay.Message message){
+        ReturnPlay out = new ReturnPlay();
+        if(returnFormat == WireFormat.Mode.DELTA)
+            out.boardDelta = WireFormat.delta(currentBoardState, lastMove);
+        else if(returnFormat == WireFormat.Mode.SNAPSHOT)
+            out.boardSnapshot = WireFormat.snapshot(currentBoardState);
+        else
+            out.piecesOnBoard = currentBoardState.toReturnPieces();
+        out.message = message;
+        out.positionKey = currentBoardState.hash;
+        return out;
+    }
+
+    ///</editor-fold>
+
+    ///<editor-fold desc = "Chess funcs">
+    /// Chess Functions
+
+    public synchronized ReturnPlay play(String move) {
+        lastMove = 0;
+        return result(playMove(move));
+    }
+
+    //What play() hands back for the board: the full piece list (the default), only the squares the move changed, or a
+    //64-byte snapshot. See WireFormat for the byte layouts and for rendering them.
+    public synchronized void setReturnFormat(WireFormat.Mode mode) {
+        returnFormat = mode;
+    }
+
+    //The current board as a WireFormat snapshot, for a client picking a game up in DELTA mode
+    public synchronized byte[] snapshot() {
+        return WireFormat.snapshot(currentBoardState);
+    }
+
+    //play() for callers that only want the message and read the position some other way, like ChessServer
+    synchronized ReturnPlay.Message playMessage(CharSequence move) {
+        lastMove = 0;
+        return playMove(MoveCodec.parse(move));
+    }
+
+    //Move the last play/playMessage call made, 0 if it didn't make one
+    synchronized int lastMove() {
+        return lastMove;
+    }
+
+    //WireFormat delta for the last play/playMessage call
+    synchronized byte[] lastDelta() {
+        return WireFormat.delta(currentBoardState, lastMove);
+    }
+
+    //play() without building the ReturnPlay, so callers that only need the message don't pay for the piece list
+    private ReturnPlay.Message playMove(String move) {
+        return playMove(MoveCodec.parse(move));
+    }
+
+    //Same as playMove(String) for input that already went through MoveCodec.parse
+    private ReturnPlay.Message playMove(int input) {
+
+        if(input == MoveCodec.RESIGN){
+            if(currentPlayer() == Player.white)
+                return ReturnPlay.Message.RESIGN_BLACK_WINS;
+            else
+                return ReturnPlay.Message.RESIGN_WHITE_WINS;
+        }
+
+        if(legalMoveCache != null && input >= 0)
+            return playCachedMove(input);
+
+        //We're gonna first check to make sure the move is legal, if it isn't there's no point in continuing
+        if(!checkLegal(input))
+            return ReturnPlay.Message.ILLEGAL_MOVE;
+
+        boolean draw = (input & MoveCodec.DRAW_OFFER) != 0;
+        int encoded = encodeMove(currentBoardState, Move.from(input), Move.to(input), promotionOf(input));
+        Player mover = currentPlayer();
+
+        if(doesMoveCheckPlayer(currentBoardState, mover, encoded))
+            return ReturnPlay.Message.ILLEGAL_MOVE;
+
+        executeMove(encoded);
+
+        //From here on the board has flipped over to the other player, so the status is about them
+        ReturnPlay.Message message = status(mover, isCheck(), hasLegalMove());
+
+        if(draw)
+            return ReturnPlay.Message.DRAW;
+        return message;
+    }
+
+    //playMove(int) with the legality check and the end-of-move status both read off cached legal move lists
+    private ReturnPlay.Message playCachedMove(int input) {
+        int move = legalMoveCache.get(currentBoardState, moveBuffer).find(Move.from(input), Move.to(input), promotionOf(input));
+        if(move == -1)
+            return ReturnPlay.Message.ILLEGAL_MOVE;
+
+        Player mover = currentPlayer();
+        executeMove(move);
+
+        //The entry for the new position tells us about the player who's now to move
+        LegalMoveCache.Entry next = legalMoveCache.get(currentBoardState, moveBuffer);
+        ReturnPlay.Message message = status(mover, next.inCheck, next.moves.length != 0);
+
+        if((input & MoveCodec.DRAW_OFFER) != 0)
+            return ReturnPlay.Message.DRAW;
+        return message;
+    }
+
+    //End-of-move status for the player mover just handed the board to, from one check test and one legal move scan.
+    //No legal move is mate when in check and stalemate when not; mate and stalemate come before the automatic draws,
+    //so a move that mates on the hundredth quiet ply is still a mate.
+    private ReturnPlay.Message status(Player mover, boolean inCheck, boolean canMove){
+        if(!canMove && inCheck)
+            return mover == Player.white ? ReturnPlay.Message.CHECKMATE_WHITE_WINS : ReturnPlay.Message.CHECKMATE_BLACK_WINS;
+        if(!canMove)
+            return ReturnPlay.Message.STALEMATE;
+
+        ReturnPlay.Message draw = automaticDraw();
+        if(draw != null)
+            return draw;
+        return inCheck ? ReturnPlay.Message.CHECK : null;
+    }
+
+    //Starts a new game and plays the whole move list through it, stopping at the first illegal move or at the move that
+    //ends the game. The final position stays on this session.
+    public synchronized ReplayResult replay(List<String> moves) {
+        start();
+        ReplayResult out = new ReplayResult();
+        for(String move : moves){
+            if(replayMove(out, move))
+                break;
+        }
+        out.positionKey = currentBoardState.hash;
+        return out;
+    }
+
+    //Same as replay(List), reading one move per line. Blank lines are skipped.
+    public synchronized ReplayResult replay(Reader moves) throws IOException {
+        start();
+        ReplayResult out = new ReplayResult();
+        BufferedReader reader = moves instanceof BufferedReader ? (BufferedReader) moves : new BufferedReader(moves);
+        for(String line = reader.readLine(); line != null; line = reader.readLine()){
+            if(line.isBlank())
+                continue;
+            if(replayMove(out, line))
+                break;
+        }
+        out.positionKey = currentBoardState.hash;
+        return out;
+    }
+
+    //Replays a recorded game from its starting position, stopping after at most maxMoves moves. Whatever is left of the
+    //game after it stops is simply never read.
+    synchronized ReplayResult replay(RecordedGame game, int maxMoves) throws IOException {
+        if(game.fen() == null)
+            start();
+        else
+            start(game.fen());
+        ReplayResult out = new ReplayResult();
+        for(int move = maxMoves > 0 ? game.nextMove() : -1; move != -1; move = out.movesPlayed < maxMoves ? game.nextMove() : -1){
+            if(replayMove(out, move))
+                break;
+        }
+        out.positionKey = currentBoardState.hash;
+        return out;
+    }
+
+    //Plays one replayed move into out, true once the game can't go on
+    private boolean replayMove(ReplayResult out, String move){
+        return replayMove(out, MoveCodec.parse(move));
+    }
+
+    private boolean replayMove(ReplayResult out, int move){
+        lastMove = 0;
+        ReturnPlay.Message message = playMove(move);
+        out.message = message;
+        if(message == ReturnPlay.Message.ILLEGAL_MOVE){
+            out.firstIllegalMove = out.movesPlayed;
+            return true;
+        }
+        //A resignation ends the game without touching the board, so it isn't a move played
+        if(lastMove != 0)
+            out.movesPlayed++;
+        return message != null && message != ReturnPlay.Message.CHECK;
+    }
+
+    //A pawn reaching the last rank without a letter becomes a queen
+    private static int promotionOf(int input){
+        int promotion = Move.promotion(input);
+        return promotion == 0 ? Board.QUEEN : promotion;
+    }
+
+    private void executeMove(int move){
+        currentBoardState.makeMove(move);
+        lastMove = move;
+    }
+
+    //Packs a from/to pair that already passed checkLegal into a Move, working out the flags makeMove needs
+    private static int encodeMove(Board boardIn, int from, int to, int promotion){
+        int piece = boardIn.pieceAt(from);
+        int flags = boardIn.isEmpty(to) ? 0 : Move.CAPTURE;
+
+        if(Board.kindOf(piece) == Board.PAWN){
+            if(to == boardIn.enPassantSquare && Board.fileOf(from) != Board.fileOf(to))
+                flags |= Move.CAPTURE | Move.EN_PASSANT;
+            if(Math.abs(Board.rankOf(to) - Board.rankOf(from)) == 2)
+                flags |= Move.DOUBLE_PUSH;
+        }
+        if(Board.kindOf(piece) == Board.KING && Math.abs(Board.fileOf(to) - Board.fileOf(from)) == 2)
+            flags |= Move.CASTLE;
+
+        return Move.of(from, to, isPromotion(piece, to) ? promotion : 0, flags);
+    }
+    boolean checkLegal(String move){
+        return checkLegal(MoveCodec.parse(move));
+    }
+    private boolean checkLegal(int input){
+        //Let's assume that an unexpected input also counts as an illegal move. The codec already turned away bad
+        //promotion letters, so all that's left is whether the piece can make the move.
+        if(input < 0)
+            return false;
+
+        return checkLegal(Move.from(input), Move.to(input), currentPlayer(), currentBoardState);
+    }
+    private boolean checkLegal(int from, int to, Player playerIn, Board boardIn){
+        //If the input is in an expected format, we can go on to ensure that the pieces move correctly:
+        // - Consistent with that piece's rules
+        // - Consistent with the player's color
+        // - Not onto another piece of the same color
+        int pieceInPlay = boardIn.pieceAt(from);
+        int pieceDestination = boardIn.pieceAt(to);
+
+        if(pieceInPlay == Board.EMPTY)
+            return false;
+
+        //Check if white is attempting to move black's pieces
+        if(playerIn == Player.white && isBlack(pieceInPlay))
+            return false;
+
+        //Check if black is attempting to move white's pieces
+        if(playerIn == Player.black && isWhite(pieceInPlay))
+            return false;
+
+        //Check if white is attempting to move onto another white piece
+        if (playerIn == Player.white && isWhite(pieceDestination))
+            return false;
+
+        //Check if black is attempting to move onto another black piece
+        if (playerIn == Player.black && isBlack(pieceDestination))
+            return false;
+
+        //Check if the piece is actually being moved in a direction consistent with its rules/behavior
+        return isMovementValid(boardIn, from, to);
+    }
+
+    private boolean isEnPassant(Board boardIn, int from, int to){
+        return to == boardIn.enPassantSquare && Board.kindOf(boardIn.pieceAt(from)) == Board.PAWN &&
+                Board.fileOf(from) != Board.fileOf(to) && boardIn.isEmpty(to);
+    }
+
+    private static boolean isPromotion(int piece, int destination){
+        return (piece == Board.BP && Board.rankOf(destination) == 0) ||
+                (piece == Board.WP && Board.rankOf(destination) == 7);
+    }
+
+    //True if nothing sits strictly between from and to, which must share a rank, file or diagonal
+    private static boolean isPathClear(Board boardIn, int from, int to){
+        int step = Integer.signum(Board.fileOf(to) - Board.fileOf(from)) + 8 * Integer.signum(Board.rankOf(to) - Board.rankOf(from));
+        for(int square = from + step; square != to; square += step){
+            if(!boardIn.isEmpty(square))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isMovementValid(Board boardIn, int from, int to){
+        int piece = boardIn.pieceAt(from);
+        int fileMoved = Board.fileOf(to) - Board.fileOf(from);
+        int rankMoved = Board.rankOf(to) - Board.rankOf(from);
+
+        switch(Board.kindOf(piece)){
+            case Board.PAWN: {
+                //White pawns can only move up, black pawns can only move down
+                int forward = isWhite(piece) ? 1 : -1;
+
+                //if this is diagonal capture, or enpassant, return true
+                if(Math.abs(fileMoved) == 1 && rankMoved == forward)
+                    return isOpponent(boardIn.pieceAt(to), isWhite(piece) ? Player.white : Player.black) || isEnPassant(boardIn, from, to);
+
+                //otherwise the pawn has to go straight ahead onto an empty square
+                if(fileMoved != 0 || !boardIn.isEmpty(to))
+                    return false;
+
+                if(rankMoved == forward)
+                    return true;
+
+                //If the pawn has moved already, it can't move twice, and it can't jump over anything
+                int startRank = isWhite(piece) ? 1 : 6;
+                return rankMoved == 2 * forward && Board.rankOf(from) == startRank && boardIn.isEmpty(from + 8 * forward);
+            }
+            case Board.KNIGHT:
+                //If rank changes by 2, file changes by 1. If file changes by 2, rank changes by 1.
+                return (Math.abs(fileMoved) == 2 && Math.abs(rankMoved) == 1) ||
+                        (Math.abs(fileMoved) == 1 && Math.abs(rankMoved) == 2);
+            case Board.BISHOP:
+                //If the difference between starting ranks and files and the final ranks and files are not equal, return false
+                return Math.abs(fileMoved) == Math.abs(rankMoved) && isPathClear(boardIn, from, to);
+            case Board.ROOK:
+                //If both rank and file change, return false
+                return (fileMoved == 0 || rankMoved == 0) && isPathClear(boardIn, from, to);
+            case Board.QUEEN:
+                //The queen can move like a rook or like a bishop
+                return (fileMoved == 0 || rankMoved == 0 || Math.abs(fileMoved) == Math.abs(rankMoved)) &&
+                        isPathClear(boardIn, from, to);
+            case Board.KING:
+                //If rank or file change more than 1 in any direction, the only way that's legal is castling
+                if(Math.abs(fileMoved) <= 1 && Math.abs(rankMoved) <= 1)
+                    return true;
+                return isCastle(boardIn, from, to);
+            default:
+                return false;
+        }
+    }
+
+    private boolean isCastle(Board boardIn, int from, int to){
+        int king = boardIn.pieceAt(from);
+        Player player = isWhite(king) ? Player.white : Player.black;
+        int home = isWhite(king) ? Board.E1 : Board.E8;
+
+        if(Board.kindOf(king) != Board.KING || from != home || Board.rankOf(to) != Board.rankOf(from) ||
+                Math.abs(Board.fileOf(to) - Board.fileOf(from)) != 2)
+            return false;
+
+        if(to == Board.G1 && (boardIn.castleRights & Board.CASTLE_WK) == 0)
+            return false;
+        if(to == Board.C1 && (boardIn.castleRights & Board.CASTLE_WQ) == 0)
+            return false;
+        if(to == Board.G8 && (boardIn.castleRights & Board.CASTLE_BK) == 0)
+            return false;
+        if(to == Board.C8 && (boardIn.castleRights & Board.CASTLE_BQ) == 0)
+            return false;
+
+        //The rook has to still be in its corner, with nothing between it and the king
+        int rookSquare = to > from ? from + 3 : from - 4;
+        if(boardIn.pieceAt(rookSquare) != Board.piece(colorOf(player), Board.ROOK) || !isPathClear(boardIn, from, rookSquare))
+            return false;
+
+        //Can't castle out of check, or through a square the enemy is attacking
+        int enemy = colorOf(opponentOf(player));
+        return !Attacks.isSquareAttacked(boardIn, from, enemy) && !Attacks.isSquareAttacked(boardIn, (from + to) / 2, enemy);
+    }
+
+    private boolean isCheck(){
+        return currentBoardState.checkers() != 0;
+    }
+    private boolean isCheck(Board boardIn, Player playerChecked){
+        int king = findKing(playerChecked, boardIn);
+        if (king == -1) return true;
+
+        return Attacks.isSquareAttacked(boardIn, king, colorOf(opponentOf(playerChecked)));
+    }
+
+    //Tries the move on the board in place and takes it back, true if it would leave playerIn's own king attacked
+    private boolean doesMoveCheckPlayer(Board boardIn, Player playerIn, int move){
+        boardIn.makeMove(move);
+        boolean inCheck = isCheck(boardIn, playerIn);
+        boardIn.unmakeMove(move);
+        return inCheck;
+    }
+
+    //Fills moves (at least MoveGenerator.MAX_MOVES long) with every legal move for the side to move and returns the count
+    public synchronized int generateLegalMoves(int[] moves){
+        return MoveGenerator.generateLegal(currentBoardState, moves);
+    }
+
+    //Engine move for the side to move, searched for up to millis, in the format play() takes. null if there's no legal move.
+    public synchronized String bestMove(long millis) {
+        //The clock starts here, so building the shared table and the Search on the first call comes out of the budget
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        if(search == null)
+            search = new Search(TranspositionTable.shared());
+        TranspositionTable.shared().newSearch();
+        int move = search.bestMoveBy(currentBoardState, deadline, Search.MAX_PLY, 0);
+        return move == 0 ? null : Move.toString(move);
+    }
+
+    //A move from book for the current position, picked at random in proportion to how often it was played, in the
+    //format play() takes. null once the game has left the book.
+    public synchronized String bookMove(OpeningBook book) {
+        int input = book.pick(currentBoardState.hash, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+        if(input == MoveCodec.INVALID)
+            return null;
+
+        //Only trust it if it's legal here; another position with the same key would hand back a move that isn't
+        int count = MoveGenerator.generateLegal(currentBoardState, moveBuffer);
+        for(int i = 0; i < count; i++){
+            int move = moveBuffer[i];
+            if(Move.from(move) == Move.from(input) && Move.to(move) == Move.to(input) &&
+                    Move.promotion(move) == Move.promotion(input))
+                return Move.toString(move);
+        }
+        return null;
+    }
+
+    //What tablebase knows about the current position for the side to move, see EndgameTablebase.isWin/isLoss/
+    //distanceToMate. EndgameTablebase.UNKNOWN when none of its tables covers the position.
+    public synchronized int probe(EndgameTablebase tablebase) {
+        return tablebase.probe(currentBoardState);
+    }
+
+    //Static evaluation of the current position in centipawns, positive when white is better
+    public synchronized int evaluate() {
+        int score = Evaluator.evaluate(currentBoardState);
+        return currentBoardState.sideToMove == Board.WHITE ? score : -score;
+    }
+
+    //Searches the current position with every thread of search for up to millis and at most maxDepth plies
+    public synchronized SearchResult analyze(ParallelSearch search, long millis, int maxDepth) throws InterruptedException {
+        return search.search(currentBoardState, millis, maxDepth);
+    }
+
+    private boolean hasLegalMove(){
+        return MoveGenerator.hasLegalMove(currentBoardState, moveBuffer);
+    }
+
+    //Checkmate and stalemate are both "the player about to move has nothing legal", told apart by whether they're in check.
+    //play() gets both at once through status(), this is for asking about the current position on its own.
+    boolean isCheckMate() {
+        return isCheck() && !hasLegalMove();
+    }
+
+    //Draws that happen on their own, without either player claiming them
+    private ReturnPlay.Message automaticDraw() {
+        if(currentBoardState.repetitions() >= 2)
+            return ReturnPlay.Message.DRAW_REPETITION;
+        if(currentBoardState.halfmoveClock >= 100)
+            return ReturnPlay.Message.DRAW_FIFTY_MOVE;
+        if(currentBoardState.isInsufficientMaterial())
+            return ReturnPlay.Message.DRAW_INSUFFICIENT_MATERIAL;
+        return null;
+    }
+
+    private int findKing(Player player, Board boardIn){
+        return boardIn.kingSquare(colorOf(player)); // -1 should not happen if the board is valid
+    }
+
+    public synchronized void start() {
+        currentBoardState = new Board();
+
+        // White Pieces
+        for(ReturnPiece.PieceFile file: ReturnPiece.PieceFile.values()) {
+            // White Pawns
+            addPiece(currentBoardState, ReturnPiece.PieceType.WP, file, 2);
+        }
+
+        addPiece(currentBoardState, ReturnPiece.PieceType.WR, ReturnPiece.PieceFile.a, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WN, ReturnPiece.PieceFile.b, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WB, ReturnPiece.PieceFile.c, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WQ, ReturnPiece.PieceFile.d, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WK, ReturnPiece.PieceFile.e, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WB, ReturnPiece.PieceFile.f, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WN, ReturnPiece.PieceFile.g, 1);
+        addPiece(currentBoardState, ReturnPiece.PieceType.WR, ReturnPiece.PieceFile.h, 1);
+
+        // Black Pieces
+        for(ReturnPiece.PieceFile file: ReturnPiece.PieceFile.values()) {
+            // Black Pawns
+            addPiece(currentBoardState, ReturnPiece.PieceType.BP, file, 7);
+        }
+
+        addPiece(currentBoardState, ReturnPiece.PieceType.BR, ReturnPiece.PieceFile.a, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BN, ReturnPiece.PieceFile.b, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BB, ReturnPiece.PieceFile.c, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BQ, ReturnPiece.PieceFile.d, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BK, ReturnPiece.PieceFile.e, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BB, ReturnPiece.PieceFile.f, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BN, ReturnPiece.PieceFile.g, 8);
+        addPiece(currentBoardState, ReturnPiece.PieceType.BR, ReturnPiece.PieceFile.h, 8);
+    }
+
+    //Starts the session from a FEN position instead of the usual starting one, throws IllegalArgumentException
+    //(leaving the current game alone) if the FEN is malformed or not a position the game can continue from
+    public synchronized void start(String fen) {
+        currentBoardState = Board.fromFen(fen);
+    }
+
+    //The current position as FEN, enough to pick the game back up later with start(fen)
+    public synchronized String fen() {
+        return currentBoardState.toFen();
+    }
+
+    //64-bit Zobrist key of the current position (pieces, side to move, castling rights, en passant file)
+    public synchronized long positionKey() {
+        return currentBoardState.hash;
+    }
+
+    synchronized ArrayList<ReturnPiece> piecesOnBoard() {
+        return currentBoardState.toReturnPieces();
+    }
+
+    private void addPiece(Board board, ReturnPiece.PieceType type, ReturnPiece.PieceFile file, int rank) {
+        board.put(Board.fromType(type), Board.square(file.ordinal(), rank - 1));
+    }
+
+    ///</editor-fold>
+}
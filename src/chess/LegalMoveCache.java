@@ -0,0 +1,151 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+///
+/// Bounded LRU cache from a position key (Board.hash) to that position's legal moves and whether the side to move
+/// is in check. One cache can be handed to any number of GameSessions; popular opening positions then get their
+/// moves generated once instead of validated from scratch on every play.
+///
+/// The cache is split into independently locked segments, each its own access-ordered LinkedHashMap, so sessions
+/// on different threads rarely wait on each other. Moves are generated outside the lock on a miss.
+///
+/// Each entry also remembers which squares each side had pieces on. Two positions sharing a 64-bit key is rare but
+/// possible, and playing one position's move on the other would corrupt the board, so an entry whose occupancy
+/// doesn't match is treated as a miss.
+///
+
+public class LegalMoveCache {
+
+    private static final int SEGMENTS = 16;
+
+    //What we keep per position. moves is exactly as long as the number of legal moves.
+    static final class Entry {
+        final int[] moves;
+        final boolean inCheck;
+        private final long mover;   //squares the side to move has pieces on
+        private final long all;     //squares either side has pieces on
+
+        Entry(int[] moves, boolean inCheck, Board board) {
+            this.moves = moves;
+            this.inCheck = inCheck;
+            mover = board.occupied[board.sideToMove];
+            all = board.all;
+        }
+
+        //Whether this entry was made for board's position and not another one with the same key
+        boolean matches(Board board){
+            return mover == board.occupied[board.sideToMove] && all == board.all;
+        }
+
+        //The legal move going from -> to (with that promotion kind if it's a promotion), or -1
+        int find(int from, int to, int promotion){
+            for(int move : moves){
+                if(Move.from(move) == from && Move.to(move) == to && (Move.promotion(move) == 0 || Move.promotion(move) == promotion))
+                    return move;
+            }
+            return -1;
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    //capacity is the total number of positions kept, spread evenly over the segments
+    public LegalMoveCache(int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for(int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(perSegment);
+    }
+
+    //Entry for the board's current position, generating it (with buffer as scratch space) if it isn't cached
+    Entry get(Board board, int[] buffer){
+        long key = board.hash;
+        Segment segment = segmentFor(key);
+
+        Entry entry;
+        synchronized(segment){
+            entry = segment.get(key);
+        }
+        if(entry != null && entry.matches(board)){
+            hits.increment();
+            return entry;
+        }
+
+        misses.increment();
+        int count = MoveGenerator.generateLegal(board, buffer);
+        entry = new Entry(Arrays.copyOf(buffer, count), board.checkers() != 0, board);
+
+        synchronized(segment){
+            //Another thread may have filled it in while we were generating, theirs is just as good. A colliding
+            //position's entry gives way to this one.
+            Entry raced = segment.get(key);
+            if(raced != null && raced.matches(board))
+                return raced;
+            segment.put(key, entry);
+            return entry;
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments){
+            synchronized(segment){
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for(Segment segment : segments){
+            synchronized(segment){
+                segment.clear();
+            }
+        }
+    }
+
+    //Zobrist keys are uniformly random, so the top bits spread positions evenly
+    private Segment segmentFor(long key){
+        return segments[(int) (key >>> 60)];
+    }
+
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if(size() <= capacity)
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package chess;
+
+///
+/// Moves packed into a single int so they can live in primitive buffers:
+///   bits 0-5   from square
+///   bits 6-11  to square
+///   bits 12-14 promotion kind (Board.KNIGHT..Board.QUEEN), 0 if not a promotion
+///   bits 15-18 flags below
+///
+
+public final class Move {
+
+    static final int CAPTURE = 1 << 15;
+    static final int EN_PASSANT = 1 << 16;
+    static final int CASTLE = 1 << 17;
+    static final int DOUBLE_PUSH = 1 << 18;
+
+    private static final char[] PROMOTION_LETTERS = {' ', 'N', 'B', 'R', 'Q'};
+
+    private Move() {}
+
+    static int of(int from, int to, int promotion, int flags){
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    public static int from(int move){
+        return move & 63;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move){
+        return (move >>> 12) & 7;
+    }
+
+    static boolean isCapture(int move){
+        return (move & CAPTURE) != 0;
+    }
+
+    static boolean isEnPassant(int move){
+        return (move & EN_PASSANT) != 0;
+    }
+
+    static boolean isCastle(int move){
+        return (move & CASTLE) != 0;
+    }
+
+    //Same text format Chess.play takes, e.g. "e2 e4" or "g7 g8 Q"
+    public static String toString(int move){
+        StringBuilder out = new StringBuilder(7);
+        appendSquare(out, from(move));
+        out.append(' ');
+        appendSquare(out, to(move));
+        if(promotion(move) != 0)
+            out.append(' ').append(PROMOTION_LETTERS[promotion(move)]);
+        return out.toString();
+    }
+
+    private static void appendSquare(StringBuilder out, int square){
+        out.append((char) ('a' + Board.fileOf(square))).append((char) ('1' + Board.rankOf(square)));
+    }
+}
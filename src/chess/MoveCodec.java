@@ -0,0 +1,117 @@
+package chess;
+
+///
+/// Reads the text moves Chess.play takes ("e2 e4", "g7 g8 N", "e2 e4 draw?", "resign") straight into the int layout
+/// Move uses, without regexes, substrings or any other allocation. Squares and letters are case-insensitive and
+/// any run of whitespace separates the parts.
+///
+/// The result carries the squares and whatever promotion letter was typed (0 if none). The capture/castle/en passant
+/// flags depend on the board, so they're left for the caller; a trailing "draw?" sets DRAW_OFFER instead.
+///
+
+final class MoveCodec {
+
+    static final int INVALID = -1;
+    static final int RESIGN = -2;
+
+    //Above Move's own flag bits, so it can never be mistaken for one of them
+    static final int DRAW_OFFER = 1 << 19;
+
+    private MoveCodec() {}
+
+    //One of the values above, or from/to/promotion (and maybe DRAW_OFFER) packed the way Move.of packs them
+    static int parse(CharSequence text){
+        if(text == null)
+            return INVALID;
+
+        int end = text.length();
+        int i = skipSpaces(text, 0, end);
+        while(end > i && isSpace(text.charAt(end - 1)))
+            end--;
+
+        if(matches(text, i, end, "resign") && i + 6 == end)
+            return RESIGN;
+
+        int from = square(text, i, end);
+        int next = skipSpaces(text, i + 2, end);
+        if(from == -1 || next == i + 2)
+            return INVALID;
+
+        i = next;
+        int to = square(text, i, end);
+        if(to == -1)
+            return INVALID;
+        i += 2;
+
+        //Optional promotion letter, then optional draw offer, each in its own whitespace separated part
+        int promotion = 0;
+        int flags = 0;
+        while(i < end){
+            next = skipSpaces(text, i, end);
+            if(next == i)
+                return INVALID;
+            i = next;
+
+            if(flags == 0 && matches(text, i, end, "draw?")){
+                flags = DRAW_OFFER;
+                i += 5;
+            } else if(flags == 0 && promotion == 0 && (i + 1 == end || isSpace(text.charAt(i + 1))) &&
+                    promotionKind(text.charAt(i)) != 0){
+                promotion = promotionKind(text.charAt(i));
+                i++;
+            } else
+                return INVALID;
+        }
+
+        return Move.of(from, to, promotion, flags);
+    }
+
+    private static boolean isSpace(char c){
+        return c <= ' ';
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end){
+        while(i < end && isSpace(text.charAt(i)))
+            i++;
+        return i;
+    }
+
+    //Case-insensitive check that word starts at text[i]
+    private static boolean matches(CharSequence text, int i, int end, String word){
+        if(end - i < word.length())
+            return false;
+        for(int k = 0; k < word.length(); k++){
+            if(Character.toLowerCase(text.charAt(i + k)) != word.charAt(k))
+                return false;
+        }
+        return true;
+    }
+
+    //Square written at text[i..i+1], e.g. "e2" -> 12, or -1
+    private static int square(CharSequence text, int i, int end){
+        if(end - i < 2)
+            return -1;
+        int file = Character.toLowerCase(text.charAt(i)) - 'a';
+        int rank = text.charAt(i + 1) - '1';
+        return Board.onBoard(file, rank) ? Board.square(file, rank) : -1;
+    }
+
+    private static int promotionKind(char letter){
+        switch(letter){
+            case 'N':
+            case 'n':
+                return Board.KNIGHT;
+            case 'B':
+            case 'b':
+                return Board.BISHOP;
+            case 'R':
+            case 'r':
+                return Board.ROOK;
+            case 'Q':
+            case 'q':
+                return Board.QUEEN;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package chess;
+
+///
+/// Move generation. generate() produces pseudo-legal moves: every move that follows the piece's movement rules,
+/// without checking whether it leaves the mover's own king in check. generateLegal() filters those down.
+/// Moves are written into a caller-owned int buffer (see Move).
+///
+
+final class MoveGenerator {
+
+    //No legal chess position has more than 218 moves
+    static final int MAX_MOVES = 256;
+
+    private static final int[] PROMOTIONS = {Board.QUEEN, Board.ROOK, Board.BISHOP, Board.KNIGHT};
+
+    private MoveGenerator() {}
+
+    //Writes all pseudo-legal moves for color into moves and returns how many there are
+    static int generate(Board board, int color, int castleRights, int enPassantSquare, int[] moves){
+        long own = board.occupied[color];
+        long enemy = board.occupied[color ^ 1];
+        int count = 0;
+
+        count = pawnMoves(board, color, enemy, enPassantSquare, moves, count);
+
+        for(long knights = board.pieces[Board.piece(color, Board.KNIGHT)]; knights != 0; knights &= knights - 1){
+            int from = Long.numberOfTrailingZeros(knights);
+            count = addTargets(from, Attacks.KNIGHT[from] & ~own, enemy, moves, count);
+        }
+
+        long diagonal = board.pieces[Board.piece(color, Board.BISHOP)] | board.pieces[Board.piece(color, Board.QUEEN)];
+        for(; diagonal != 0; diagonal &= diagonal - 1){
+            int from = Long.numberOfTrailingZeros(diagonal);
+            count = addTargets(from, Attacks.bishop(from, board.all) & ~own, enemy, moves, count);
+        }
+
+        long straight = board.pieces[Board.piece(color, Board.ROOK)] | board.pieces[Board.piece(color, Board.QUEEN)];
+        for(; straight != 0; straight &= straight - 1){
+            int from = Long.numberOfTrailingZeros(straight);
+            count = addTargets(from, Attacks.rook(from, board.all) & ~own, enemy, moves, count);
+        }
+
+        int king = board.kingSquare(color);
+        if(king != -1){
+            count = addTargets(king, Attacks.KING[king] & ~own, enemy, moves, count);
+            count = castleMoves(board, color, king, castleRights, moves, count);
+        }
+
+        return count;
+    }
+
+    //Writes every legal move for the side to move into moves and returns how many there are
+    static int generateLegal(Board board, int[] moves){
+        int pseudoLegal = generate(board, board.sideToMove, board.castleRights, board.enPassantSquare, moves);
+        int legal = 0;
+        for(int i = 0; i < pseudoLegal; i++){
+            if(isLegal(board, moves[i]))
+                moves[legal++] = moves[i];
+        }
+        return legal;
+    }
+
+    //Stops at the first legal move, buffer is only scratch space
+    static boolean hasLegalMove(Board board, int[] buffer){
+        int pseudoLegal = generate(board, board.sideToMove, board.castleRights, board.enPassantSquare, buffer);
+        for(int i = 0; i < pseudoLegal; i++){
+            if(isLegal(board, buffer[i]))
+                return true;
+        }
+        return false;
+    }
+
+    //Whether a pseudo-legal move for the side to move keeps that side's king safe
+    static boolean isLegal(Board board, int move){
+        int us = board.sideToMove;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int king = board.kingSquare(us);
+
+        //We only checked castling for rights and empty squares, it also can't start in, pass through or land in check
+        if(Move.isCastle(move))
+            return !Attacks.isSquareAttacked(board, from, us ^ 1) && !Attacks.isSquareAttacked(board, (from + to) / 2, us ^ 1) &&
+                    !Attacks.isSquareAttacked(board, to, us ^ 1);
+
+        //The king can't step onto an attacked square. Take it off the board first so it can't hide behind itself.
+        if(from == king)
+            return Attacks.attackers(board, to, us ^ 1, board.all ^ (1L << from)) == 0;
+
+        //Rare enough to just try it
+        if(Move.isEnPassant(move)){
+            board.makeMove(move);
+            boolean safe = king == -1 || !Attacks.isSquareAttacked(board, king, us ^ 1);
+            board.unmakeMove(move);
+            return safe;
+        }
+
+        //In check, anything but the king has to take the one checker or step in front of it. Worked out from the cached
+        //checkers so trying each candidate doesn't leave the board's attack info to be recomputed.
+        long checkers = board.checkers();
+        if(checkers != 0){
+            if((checkers & (checkers - 1)) != 0)
+                return false;
+            int checker = Long.numberOfTrailingZeros(checkers);
+            if(to != checker && (Attacks.BETWEEN[king][checker] & (1L << to)) == 0)
+                return false;
+        }
+
+        //Only a pinned piece can expose the king otherwise, and only by leaving the line it's pinned on
+        return (board.pinned() & (1L << from)) == 0 || (Attacks.LINE[king][from] & (1L << to)) != 0;
+    }
+
+    private static int addTargets(int from, long targets, long enemy, int[] moves, int count){
+        for(; targets != 0; targets &= targets - 1){
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[count++] = Move.of(from, to, 0, (enemy & (1L << to)) != 0 ? Move.CAPTURE : 0);
+        }
+        return count;
+    }
+
+    private static int pawnMoves(Board board, int color, long enemy, int enPassantSquare, int[] moves, int count){
+        int forward = color == Board.WHITE ? 8 : -8;
+        int startRank = color == Board.WHITE ? 1 : 6;
+        int lastRank = color == Board.WHITE ? 7 : 0;
+
+        for(long pawns = board.pieces[Board.piece(color, Board.PAWN)]; pawns != 0; pawns &= pawns - 1){
+            int from = Long.numberOfTrailingZeros(pawns);
+            int ahead = from + forward;
+
+            if(board.isEmpty(ahead)){
+                count = addPawnMove(from, ahead, 0, lastRank, moves, count);
+                if(Board.rankOf(from) == startRank && board.isEmpty(ahead + forward))
+                    moves[count++] = Move.of(from, ahead + forward, 0, Move.DOUBLE_PUSH);
+            }
+
+            for(int side = -1; side <= 1; side += 2){
+                int file = Board.fileOf(from) + side;
+                if(file < 0 || file > 7)
+                    continue;
+                int to = ahead + side;
+                if((enemy & (1L << to)) != 0)
+                    count = addPawnMove(from, to, Move.CAPTURE, lastRank, moves, count);
+                else if(to == enPassantSquare)
+                    moves[count++] = Move.of(from, to, 0, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    //Pawn moves onto the last rank come out as one move per promotion piece
+    private static int addPawnMove(int from, int to, int flags, int lastRank, int[] moves, int count){
+        if(Board.rankOf(to) != lastRank){
+            moves[count++] = Move.of(from, to, 0, flags);
+            return count;
+        }
+        for(int promotion : PROMOTIONS)
+            moves[count++] = Move.of(from, to, promotion, flags);
+        return count;
+    }
+
+    //Only checks rights and that the squares between king and rook are empty; attacked squares are the caller's job
+    private static int castleMoves(Board board, int color, int king, int castleRights, int[] moves, int count){
+        int home = color == Board.WHITE ? Board.E1 : Board.E8;
+        if(king != home)
+            return count;
+
+        int rook = Board.piece(color, Board.ROOK);
+        int kingSide = color == Board.WHITE ? Board.CASTLE_WK : Board.CASTLE_BK;
+        int queenSide = color == Board.WHITE ? Board.CASTLE_WQ : Board.CASTLE_BQ;
+
+        if((castleRights & kingSide) != 0 && board.pieceAt(home + 3) == rook &&
+                board.isEmpty(home + 1) && board.isEmpty(home + 2))
+            moves[count++] = Move.of(home, home + 2, 0, Move.CASTLE);
+
+        if((castleRights & queenSide) != 0 && board.pieceAt(home - 4) == rook &&
+                board.isEmpty(home - 1) && board.isEmpty(home - 2) && board.isEmpty(home - 3))
+            moves[count++] = Move.of(home, home - 2, 0, Move.CASTLE);
+
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+///
+/// Read side of the book format OpeningBookBuilder describes. The file is memory mapped and looked up in place by
+/// binary search on the position key, so a lookup reads a couple of dozen longs straight from the mapping and
+/// allocates nothing.
+///
+/// Nothing changes after open and every read is an absolute get, so any number of threads can share one book.
+///
+
+public class OpeningBook {
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    public OpeningBook(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long length = channel.size();
+            if(length > Integer.MAX_VALUE)
+                throw new IOException("Opening book too large to map: " + file);
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+
+        if(entries.limit() < OpeningBookBuilder.HEADER_SIZE || entries.getInt(0) != OpeningBookBuilder.MAGIC)
+            throw new IOException("Not an opening book: " + file);
+        long count = entries.getLong(4);
+        if(count < 0 || OpeningBookBuilder.HEADER_SIZE + count * OpeningBookBuilder.ENTRY_SIZE != entries.limit())
+            throw new IOException("Corrupt opening book: " + file);
+        size = (int) count;
+    }
+
+    //Entries, one per position and move
+    public int size() {
+        return size;
+    }
+
+    //Fills moves with the book moves for the position with the given key (see GameSession.positionKey), most played
+    //first, and weights with how many games played each. Returns how many it wrote, at most moves.length.
+    public int lookup(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for(int i = first(key); i < size && key(i) == key && count < moves.length; i++){
+            moves[count] = move(i);
+            weights[count] = weight(i);
+            count++;
+        }
+        return count;
+    }
+
+    //One of the position's moves, chosen with probability in proportion to its weight by random (any int >= 0).
+    //MoveCodec.INVALID if the position isn't in the book.
+    int pick(long key, int random){
+        int first = first(key);
+        int total = 0;
+        for(int i = first; i < size && key(i) == key; i++)
+            total += weight(i);
+        if(total == 0)
+            return MoveCodec.INVALID;
+
+        int target = random % total;
+        for(int i = first; ; i++){
+            target -= weight(i);
+            if(target < 0)
+                return move(i);
+        }
+    }
+
+    //Index of the first entry whose key is at least key
+    private int first(long key){
+        int low = 0;
+        int high = size;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(key(middle) < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private long key(int entry){
+        return entries.getLong(offset(entry));
+    }
+
+    private int move(int entry){
+        return entries.getShort(offset(entry) + 8) & OpeningBookBuilder.MOVE_MASK;
+    }
+
+    private int weight(int entry){
+        return entries.getShort(offset(entry) + 10) & 0xFFFF;
+    }
+
+    private static int offset(int entry){
+        return OpeningBookBuilder.HEADER_SIZE + entry * OpeningBookBuilder.ENTRY_SIZE;
+    }
+}
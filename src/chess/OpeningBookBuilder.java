@@ -0,0 +1,152 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+///
+/// Compiles an OpeningBook file from finished games. Each game is played through a GameSession, and every move in
+/// its first maxPlies plies is counted against the position it was played from, so transpositions pool into one
+/// entry.
+///
+///   header  "CHB1", entry count (8 bytes)
+///   entries 12 bytes each, sorted by position key and, within a position, most played move first:
+///           position key (8 bytes), move (2 bytes, from/to/promotion exactly as Move packs them), weight (2 bytes)
+///
+/// Weight is the number of games that played the move, capped at 65535.
+///
+///   java chess.OpeningBookBuilder <archive> <book> [maxPlies] [minGames]
+///
+
+public class OpeningBookBuilder {
+
+    static final int MAGIC = 0x43484231; //"CHB1"
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 12;
+    static final int MOVE_MASK = 0x7FFF; //from, to and promotion; drops the draw offer
+
+    public static final int DEFAULT_MAX_PLIES = 30;
+
+    private final int maxPlies;
+    private final GameSession session = new GameSession();
+
+    //position key -> move -> games that played it there
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    //(position key, move) pairs the game being added has counted, so a game that comes back to a position counts its
+    //move there once
+    private final Set<Map.Entry<Long, Integer>> counted = new HashSet<>();
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    //Only counts moves up to maxPlies plies into each game
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public void addGame(List<String> moves) {
+        addGame(null, moves);
+    }
+
+    //Counts the opening of a game starting from fen (null for the usual starting position). The game stops counting
+    //at its first illegal move, resignation or game-ending move.
+    public void addGame(String fen, List<String> moves) {
+        if(fen == null)
+            session.start();
+        else
+            session.start(fen);
+
+        counted.clear();
+        for(int ply = 0; ply < Math.min(maxPlies, moves.size()); ply++){
+            long key = session.positionKey();
+            ReturnPlay.Message message = session.playMessage(moves.get(ply));
+            //The move as the board resolved it, so an implied queen promotion or a stray letter can't change the entry
+            int move = session.lastMove() & MOVE_MASK;
+            if(move == 0)
+                return;
+            if(counted.add(Map.entry(key, move)))
+                counts.computeIfAbsent(key, k -> new HashMap<>(4)).merge(move, 1, Integer::sum);
+            if(message != null && message != ReturnPlay.Message.CHECK)
+                return;
+        }
+    }
+
+    public void addArchive(GameArchive archive) {
+        for(long game = 0; game < archive.size(); game++)
+            addGame(archive.fen(game), archive.moves(game));
+    }
+
+    //Positions counted so far
+    public int positions() {
+        return counts.size();
+    }
+
+    //Writes the book, leaving out moves fewer than minGames games played
+    public void write(Path file, int minGames) throws IOException {
+        long[] keys = new long[counts.size()];
+        int next = 0;
+        for(long key : counts.keySet())
+            keys[next++] = key;
+        Arrays.sort(keys);
+
+        long entryCount = 0;
+        for(Map<Integer, Integer> moves : counts.values()){
+            for(int games : moves.values()){
+                if(games >= minGames)
+                    entryCount++;
+            }
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)){
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            buffer.putInt(MAGIC).putLong(entryCount);
+
+            for(long key : keys){
+                List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(counts.get(key).entrySet());
+                moves.sort((a, b) -> b.getValue() - a.getValue());
+                for(Map.Entry<Integer, Integer> move : moves){
+                    if(move.getValue() < minGames)
+                        continue;
+                    if(buffer.remaining() < ENTRY_SIZE)
+                        drain(channel, buffer);
+                    buffer.putLong(key).putShort((short) (int) move.getKey());
+                    buffer.putShort((short) Math.min(0xFFFF, move.getValue()));
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2){
+            System.err.println("usage: java chess.OpeningBookBuilder <archive> <book> [maxPlies] [minGames]");
+            return;
+        }
+        int maxPlies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLIES;
+        int minGames = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+        GameArchive archive = new GameArchive(Path.of(args[0]));
+        builder.addArchive(archive);
+        builder.write(Path.of(args[1]), minGames);
+        System.out.println(archive.size() + " games, " + builder.positions() + " positions");
+    }
+}
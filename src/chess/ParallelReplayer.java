@@ -0,0 +1,78 @@
+package chess;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+///
+/// Bulk game validation across cores. Each game is a move list in the same "e2 e4" format Chess.play takes, and is
+/// replayed on its own GameSession. Every worker thread keeps one session and reuses it game after game, so apart
+/// from an optional LegalMoveCache nothing is shared between workers and throughput scales with the number of threads.
+///
+
+public class ParallelReplayer implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<GameSession> sessions;
+
+    public ParallelReplayer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelReplayer(int parallelism) {
+        this(parallelism, null);
+    }
+
+    //All the workers' sessions validate against the one cache, so a position one worker has seen is a hit for the rest
+    public ParallelReplayer(int parallelism, LegalMoveCache legalMoveCache) {
+        pool = new ForkJoinPool(parallelism);
+        sessions = ThreadLocal.withInitial(() -> new GameSession(legalMoveCache));
+    }
+
+    //Replays every game and returns the results in the same order as the games
+    public List<ReplayResult> replayAll(List<List<String>> games) throws InterruptedException {
+        return run(() -> games.parallelStream().map(this::replay).collect(Collectors.toList()));
+    }
+
+    //Replays a stream of games, handing each game and its result to results as they come out. With ordered set the
+    //results arrive in stream order on one thread at a time; otherwise they arrive as soon as each game is done, from
+    //any worker, so results has to be thread safe.
+    public void replayAll(Stream<List<String>> games, boolean ordered, BiConsumer<List<String>, ReplayResult> results)
+            throws InterruptedException {
+        run(() -> {
+            Stream<List<String>> parallel = games.parallel();
+            if(ordered)
+                parallel.forEachOrdered(game -> results.accept(game, replay(game)));
+            else
+                parallel.unordered().forEach(game -> results.accept(game, replay(game)));
+            return null;
+        });
+    }
+
+    private ReplayResult replay(List<String> game){
+        return sessions.get().replay(game);
+    }
+
+    //Parallel streams started from inside a pool task run on that pool instead of the common pool
+    private <T> T run(Callable<T> task) throws InterruptedException {
+        try {
+            return pool.submit(task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
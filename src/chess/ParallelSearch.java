@@ -0,0 +1,113 @@
+package chess;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+///
+/// Lazy SMP: every thread runs its own iterative deepening search of the same root on its own copy of the board,
+/// and they cooperate only through the shared TranspositionTable. Half the helpers search one ply deeper than the
+/// main thread, so the table fills with exactly the results the main thread is about to ask for. Each thread keeps
+/// its own killer and history tables.
+///
+/// The calling thread is the main search; the helpers live in a pool that is kept between searches.
+///
+///   java chess.ParallelSearch [threads] [depth] ["fen"]    time one fixed-depth search
+///
+
+public class ParallelSearch implements AutoCloseable {
+
+    private final Search[] searches;
+    private final TranspositionTable table;
+    private final ExecutorService helpers;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if(threads < 1)
+            throw new IllegalArgumentException("need at least one search thread");
+        this.table = table;
+        searches = new Search[threads];
+        for(int i = 0; i < threads; i++)
+            searches[i] = new Search(table);
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "chess-search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Searches board for up to millis and at most maxDepth plies. The board comes back as it went in.
+    synchronized SearchResult search(Board board, long millis, int maxDepth) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        table.newSearch();
+        for(Search search : searches)
+            search.clearStop();
+
+        int[] moves = new int[searches.length];
+        Future<?>[] running = new Future<?>[searches.length - 1];
+        for(int i = 1; i < searches.length; i++){
+            int helper = i;
+            Board copy = board.copy();
+            running[i - 1] = helpers.submit(() -> {
+                moves[helper] = searches[helper].bestMoveBy(copy, deadline, maxDepth, helper % 2);
+                //A helper that got all the way to maxDepth has answered the question, nobody needs to keep going
+                if(searches[helper].depth() >= maxDepth)
+                    stopAll();
+            });
+        }
+
+        moves[0] = searches[0].bestMoveBy(board, deadline, maxDepth, 0);
+
+        stopAll();
+        for(Future<?> helper : running){
+            try {
+                helper.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("search helper failed", e.getCause());
+            }
+        }
+
+        //The deepest finished iteration wins, the main thread on ties
+        int best = 0;
+        for(int i = 1; i < searches.length; i++){
+            if(searches[i].depth() > searches[best].depth())
+                best = i;
+        }
+
+        SearchResult out = new SearchResult();
+        out.bestMove = moves[best] == 0 ? null : Move.toString(moves[best]);
+        out.depth = searches[best].depth();
+        out.score = searches[best].score();
+        for(Search search : searches)
+            out.nodes += search.nodes();
+        long nanos = Math.max(1, System.nanoTime() - start);
+        out.nodesPerSecond = out.nodes * 1_000_000_000L / nanos;
+        return out;
+    }
+
+    private void stopAll(){
+        for(Search search : searches)
+            search.stop();
+    }
+
+    @Override
+    public void close() {
+        if(helpers != null)
+            helpers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        String fen = args.length > 2 ? args[2] : "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+        try(ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(256))){
+            long start = System.nanoTime();
+            SearchResult result = search.search(Board.fromFen(fen), Long.MAX_VALUE / 2_000_000, depth);
+            System.out.printf("%d threads: %s depth %d score %d, %,d nodes in %d ms, %,d nodes/s%n", threads,
+                    result.bestMove, result.depth, result.score, result.nodes, (System.nanoTime() - start) / 1_000_000,
+                    result.nodesPerSecond);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+///
+/// Perft: counts the leaf nodes of the legal move tree to a fixed depth and checks them against published counts.
+/// Any bug in castling, en passant, promotion or pins shows up as a wrong count, and the nodes/second line is the
+/// number to watch before shipping an engine change.
+///
+///   java chess.Perft                       run the reference suite
+///   java chess.Perft --deep                run the reference suite one ply deeper
+///   java chess.Perft --min-nps 5000000     also fail if the suite runs slower than that
+///   java chess.Perft "<fen>" <depth>       print the per-move breakdown ("divide") for one position
+///
+
+public final class Perft {
+
+    //Reference positions and node counts from the Chess Programming Wiki "Perft Results" page
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"};
+    private static final long[][] EXPECTED = {
+            {20, 400, 8902, 197281, 4865609, 119060324L},
+            {48, 2039, 97862, 4085603, 193690690L},
+            {14, 191, 2812, 43238, 674624, 11030083, 178633661L},
+            {6, 264, 9467, 422333, 15833292},
+            {44, 1486, 62379, 2103487, 89941194L}};
+    //Depth each position is run to by default, picked so the whole suite takes a few seconds
+    private static final int[] DEPTHS = {5, 4, 5, 4, 4};
+
+    private Perft() {}
+
+    //Leaf count to depth, buffers holds one move list per ply so the count itself allocates nothing
+    static long perft(Board board, int depth, int[][] buffers){
+        int[] moves = buffers[depth];
+        int count = MoveGenerator.generateLegal(board, moves);
+        if(depth == 1)
+            return count;
+
+        long nodes = 0;
+        for(int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1, buffers);
+            board.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    static int[][] buffers(int depth){
+        return new int[depth + 1][MoveGenerator.MAX_MOVES];
+    }
+
+    public static void main(String[] args) {
+        if(args.length == 2 && !args[0].startsWith("--")){
+            divide(Board.fromFen(args[0]), Integer.parseInt(args[1]));
+            return;
+        }
+
+        int extraDepth = 0;
+        long minNodesPerSecond = 0;
+        for(int i = 0; i < args.length; i++){
+            if(args[i].equals("--deep"))
+                extraDepth = 1;
+            else if(args[i].equals("--min-nps") && i + 1 < args.length)
+                minNodesPerSecond = Long.parseLong(args[++i]);
+        }
+
+        boolean failed = false;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for(int p = 0; p < POSITIONS.length; p++){
+            int depth = Math.min(DEPTHS[p] + extraDepth, EXPECTED[p].length);
+            Board board = Board.fromFen(POSITIONS[p]);
+
+            long start = System.nanoTime();
+            long nodes = perft(board, depth, buffers(depth));
+            long nanos = System.nanoTime() - start;
+
+            boolean ok = nodes == EXPECTED[p][depth - 1];
+            failed |= !ok;
+            totalNodes += nodes;
+            totalNanos += nanos;
+            System.out.printf("%-4s position %d depth %d: %,d nodes (expected %,d) in %d ms, %,d nodes/s%n",
+                    ok ? "OK" : "FAIL", p + 1, depth, nodes, EXPECTED[p][depth - 1], nanos / 1_000_000, perSecond(nodes, nanos));
+        }
+
+        long nodesPerSecond = perSecond(totalNodes, totalNanos);
+        System.out.printf("total: %,d nodes in %d ms, %,d nodes/s%n", totalNodes, totalNanos / 1_000_000, nodesPerSecond);
+
+        if(nodesPerSecond < minNodesPerSecond){
+            System.out.printf("FAIL below the %,d nodes/s floor%n", minNodesPerSecond);
+            failed = true;
+        }
+        if(failed)
+            System.exit(1);
+    }
+
+    private static void divide(Board board, int depth){
+        int[][] buffers = buffers(depth);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves);
+
+        long total = 0;
+        for(int i = 0; i < count; i++){
+            long nodes = 1;
+            if(depth > 1){
+                board.makeMove(moves[i]);
+                nodes = perft(board, depth - 1, buffers);
+                board.unmakeMove(moves[i]);
+            }
+            total += nodes;
+            System.out.println(Move.toString(moves[i]) + ": " + nodes);
+        }
+        System.out.println("total: " + total);
+    }
+
+    private static long perSecond(long nodes, long nanos){
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
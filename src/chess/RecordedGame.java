@@ -0,0 +1,17 @@
+package chess;
+
+import java.io.IOException;
+
+///
+/// One game's worth of recorded moves, read in order: from a GameRecordReader stream or out of a GameArchive.
+///
+
+interface RecordedGame {
+
+    //FEN the game starts from, null for the usual starting position
+    String fen();
+
+    //Next move in MoveCodec.parse's form (from/to/promotion plus DRAW_OFFER, or MoveCodec.RESIGN), or -1 once the
+    //game's moves run out
+    int nextMove() throws IOException;
+}
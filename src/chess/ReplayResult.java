@@ -0,0 +1,13 @@
+package chess;
+
+///
+/// What GameSession.replay hands back: how far the game got, where it went wrong (if it did), and how it ended.
+/// The final position itself stays on the session that did the replay.
+///
+
+class ReplayResult {
+    int movesPlayed;            //moves applied to the board
+    int firstIllegalMove = -1;  //index into the move list of the first illegal move, -1 if there wasn't one
+    ReturnPlay.Message message; //message from the last move looked at (null if it was a plain move)
+    long positionKey;           //Zobrist key of the final position
+}
@@ -0,0 +1,345 @@
+package chess;
+
+import java.util.Arrays;
+
+///
+/// Computer opponent: negamax alpha-beta with a capture-only quiescence search at the leaves, iterative deepening and
+/// a hard time budget. Moves are tried captures first (most valuable victim, then least valuable attacker), then the
+/// two killer moves kept for the ply (quiet moves that cut off a sibling node), then everything else. Positions
+/// reached again by another move order are answered from a TranspositionTable, and the best move stored there for a
+/// position is always tried first.
+///
+/// Quiet moves without a killer slot are ordered by a history table, how much each piece-to-square move has been
+/// cutting off lately.
+///
+/// A Search keeps its move buffers, killer and history tables between calls, so one instance is reused move after
+/// move. It is not thread safe; each thread searching needs its own, though they can all share one table (see
+/// ParallelSearch). The caller starts each new root search with TranspositionTable.newSearch.
+///
+/// With an EndgameTablebase, positions it covers aren't searched at all: the table's distance to mate is the score.
+///
+
+final class Search {
+
+    static final int MATE = 30000;
+    static final int MAX_PLY = 64;
+    private static final int INFINITY = 32000;
+
+    private static final int HASH_ORDER = 1 << 21;
+    private static final int CAPTURE_ORDER = 1 << 20;
+    private static final int KILLER_ORDER = 1 << 19;
+
+    private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] order = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final TranspositionTable table;
+    private final EndgameTablebase tablebase; //may be null
+
+    private Board board;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested; //set from another thread to end the search early
+
+    //What the last bestMove call got to, for logging and tuning
+    private long nodes;
+    private int depth;
+    private int score;
+
+    Search(TranspositionTable table) {
+        this(table, EndgameTablebase.shared());
+    }
+
+    Search(TranspositionTable table, EndgameTablebase tablebase) {
+        this.table = table;
+        this.tablebase = tablebase;
+    }
+
+    //Best move for the side to move found by deadline (a System.nanoTime value) and within maxDepth plies, 0 if there
+    //is no legal move. The caller starts the clock, so whatever it spent setting up comes out of the budget. The board
+    //is searched in place and comes back exactly as it went in.
+    //Every iteration is searched skew plies deeper than usual. Lazy SMP helpers use it to stay a ply ahead of the main
+    //thread and fill the table with results it is about to need.
+    int bestMoveBy(Board board, long deadline, int maxDepth, int skew){
+        long start = System.nanoTime();
+        this.board = board;
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 0;
+        depth = 0;
+        score = 0;
+        for(int[] killer : killers)
+            Arrays.fill(killer, 0);
+        //Keep what the last search learned, but let this one's cutoffs outweigh it quickly
+        for(int[] scores : history){
+            for(int to = 0; to < 64; to++)
+                scores[to] >>= 3;
+        }
+
+        int[] rootMoves = moves[0];
+        int count = MoveGenerator.generateLegal(board, rootMoves);
+        if(count == 0)
+            return 0;
+        score(0, count, TranspositionTable.move(table.probe(board.hash)));
+        for(int i = 0; i < count; i++)
+            pickNext(0, i, count);
+
+        int best = rootMoves[0];
+        for(int iteration = 1 + skew; iteration <= Math.min(maxDepth, MAX_PLY); iteration++){
+            int alpha = -INFINITY;
+            int iterationBest = 0;
+            for(int i = 0; i < count; i++){
+                int move = rootMoves[i];
+                board.makeMove(move);
+                int value = -search(iteration - 1, 1, -INFINITY, -alpha);
+                board.unmakeMove(move);
+                if(stopped)
+                    break;
+                if(value > alpha){
+                    alpha = value;
+                    iterationBest = move;
+                }
+            }
+
+            //The previous best goes first, so anything that beat it before time ran out is a real improvement
+            if(iterationBest != 0)
+                best = iterationBest;
+            if(stopped)
+                break;
+            depth = iteration;
+            score = alpha;
+            moveToFront(rootMoves, best, count);
+
+            //Another iteration takes several times as long as this one did, so don't start one we can't finish
+            long now = System.nanoTime();
+            if(Math.abs(alpha) >= MATE - MAX_PLY || now - start > deadline - now)
+                break;
+        }
+        return best;
+    }
+
+    //Ends a running bestMove as soon as it next looks at the clock; it returns the best move it had
+    void stop() {
+        stopRequested = true;
+    }
+
+    //Clears a stop() so the next bestMove runs normally
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int score() {
+        return score;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta){
+        if(depth <= 0)
+            return quiesce(ply, alpha, beta);
+        if(outOfTime())
+            return 0;
+        if(isDraw())
+            return 0;
+        if(ply >= MAX_PLY)
+            return Evaluator.evaluate(board);
+        if(tablebase != null && Long.bitCount(board.all) <= EndgameTablebase.MAX_PIECES){
+            int result = tablebase.probe(board);
+            if(result != EndgameTablebase.UNKNOWN)
+                return fromTablebase(result, ply);
+        }
+
+        long entry = table.probe(board.hash);
+        if(entry != 0 && TranspositionTable.depth(entry) >= depth){
+            int stored = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if(bound == TranspositionTable.EXACT)
+                return Math.max(alpha, Math.min(beta, stored));
+            if(bound == TranspositionTable.LOWER && stored >= beta)
+                return beta;
+            if(bound == TranspositionTable.UPPER && stored <= alpha)
+                return alpha;
+        }
+
+        int searched = depth;
+        boolean inCheck = board.checkers() != 0;
+        if(inCheck)
+            depth++; //never stop searching while in check, a mate or a lost piece might be one move further
+
+        int count = MoveGenerator.generateLegal(board, moves[ply]);
+        if(count == 0)
+            return inCheck ? -MATE + ply : 0;
+
+        score(ply, count, TranspositionTable.move(entry));
+        int bound = TranspositionTable.UPPER;
+        int best = 0;
+        for(int i = 0; i < count; i++){
+            int move = pickNext(ply, i, count);
+            board.makeMove(move);
+            int value = -search(depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove(move);
+            if(stopped)
+                return 0;
+
+            if(value >= beta){
+                if(!Move.isCapture(move)){
+                    if(killers[ply][0] != move){
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    int[] scores = history[board.pieceAt(Move.from(move))];
+                    scores[Move.to(move)] = Math.min(KILLER_ORDER - 1, scores[Move.to(move)] + searched * searched);
+                }
+                table.store(board.hash, move, toTable(beta, ply), searched, TranspositionTable.LOWER);
+                return beta;
+            }
+            if(value > alpha){
+                alpha = value;
+                best = move;
+                bound = TranspositionTable.EXACT;
+            }
+        }
+        table.store(board.hash, best, toTable(alpha, ply), searched, bound);
+        return alpha;
+    }
+
+    //Mate scores count plies from the root, but the table is shared between roots, so it holds them counted from the
+    //position itself
+    private static int toTable(int score, int ply){
+        if(score >= MATE - MAX_PLY)
+            return score + ply;
+        if(score <= -MATE + MAX_PLY)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply){
+        if(score >= MATE - MAX_PLY)
+            return score - ply;
+        if(score <= -MATE + MAX_PLY)
+            return score + ply;
+        return score;
+    }
+
+    //A tablebase result as a score, mates counted from the root like the search's own
+    private static int fromTablebase(int result, int ply){
+        if(EndgameTablebase.isWin(result))
+            return MATE - ply - EndgameTablebase.distanceToMate(result);
+        if(EndgameTablebase.isLoss(result))
+            return -MATE + ply + EndgameTablebase.distanceToMate(result);
+        return 0;
+    }
+
+    //Only captures and promotions, until the position is quiet enough that the static evaluation means something
+    private int quiesce(int ply, int alpha, int beta){
+        if(outOfTime())
+            return 0;
+
+        int standPat = Evaluator.evaluate(board);
+        if(ply >= MAX_PLY || standPat >= beta)
+            return standPat >= beta ? beta : standPat;
+        if(standPat > alpha)
+            alpha = standPat;
+
+        int[] buffer = moves[ply];
+        int pseudoLegal = MoveGenerator.generate(board, board.sideToMove, board.castleRights, board.enPassantSquare, buffer);
+        int count = 0;
+        for(int i = 0; i < pseudoLegal; i++){
+            int move = buffer[i];
+            if((Move.isCapture(move) || Move.promotion(move) != 0) && MoveGenerator.isLegal(board, move))
+                buffer[count++] = move;
+        }
+
+        score(ply, count, 0);
+        for(int i = 0; i < count; i++){
+            int move = pickNext(ply, i, count);
+            board.makeMove(move);
+            int value = -quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove(move);
+            if(stopped)
+                return 0;
+
+            if(value >= beta)
+                return beta;
+            if(value > alpha)
+                alpha = value;
+        }
+        return alpha;
+    }
+
+    //Checked every 1024 nodes, the clock is too slow to read at every one
+    private boolean outOfTime(){
+        if((++nodes & 1023) == 0 && (stopRequested || System.nanoTime() - deadline > 0))
+            stopped = true;
+        return stopped;
+    }
+
+    //Any repetition inside the search is scored as a draw; if it was good for one side it will be just as good the
+    //second time around, and if not that side will avoid it
+    private boolean isDraw(){
+        return board.repetitions() >= 1 || board.halfmoveClock >= 100 || board.isInsufficientMaterial();
+    }
+
+    ///<editor-fold desc = "Move ordering">
+    /// Move ordering
+
+    private void score(int ply, int count, int hashMove){
+        int[] buffer = moves[ply];
+        int[] scores = order[ply];
+        for(int i = 0; i < count; i++){
+            int move = buffer[i];
+            if(move == hashMove)
+                scores[i] = HASH_ORDER;
+            else if(Move.isCapture(move) || Move.promotion(move) != 0){
+                int victim = board.pieceAt(Move.to(move));
+                int gain = Move.isEnPassant(move) ? Evaluator.VALUE[Board.PAWN] :
+                        victim == Board.EMPTY ? 0 : Evaluator.VALUE[Board.kindOf(victim)];
+                if(Move.promotion(move) != 0)
+                    gain += Evaluator.VALUE[Move.promotion(move)];
+                scores[i] = CAPTURE_ORDER + gain * 8 - Board.kindOf(board.pieceAt(Move.from(move)));
+            } else if(move == killers[ply][0])
+                scores[i] = KILLER_ORDER + 1;
+            else if(move == killers[ply][1])
+                scores[i] = KILLER_ORDER;
+            else
+                scores[i] = history[board.pieceAt(Move.from(move))][Move.to(move)];
+        }
+    }
+
+    //Swaps the best scored move left in [index, count) into index and returns it; most nodes cut off after one or two
+    //moves, so picking as we go beats sorting the whole list up front
+    private int pickNext(int ply, int index, int count){
+        int[] buffer = moves[ply];
+        int[] scores = order[ply];
+        int best = index;
+        for(int i = index + 1; i < count; i++){
+            if(scores[i] > scores[best])
+                best = i;
+        }
+        int move = buffer[best];
+        buffer[best] = buffer[index];
+        buffer[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private static void moveToFront(int[] buffer, int move, int count){
+        for(int i = 0; i < count; i++){
+            if(buffer[i] == move){
+                System.arraycopy(buffer, 0, buffer, 1, i);
+                buffer[0] = move;
+                return;
+            }
+        }
+    }
+
+    ///</editor-fold>
+}
@@ -0,0 +1,13 @@
+package chess;
+
+///
+/// What an engine search hands back: the move it picked, how deep it got and how much work that took.
+///
+
+class SearchResult {
+    String bestMove;     //in the "e2 e4" format Chess.play takes, null if the side to move has no legal move
+    int depth;           //deepest iteration any thread finished
+    int score;           //centipawns from the side to move's point of view, mates are near Search.MATE
+    long nodes;          //positions visited, all threads together
+    long nodesPerSecond;
+}
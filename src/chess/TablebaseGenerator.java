@@ -0,0 +1,463 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+///
+/// Builds an EndgameTablebase file by retrograde analysis:
+///
+///   header     "CHT1", table count (4 bytes), directory offset (8 bytes)
+///   tables     one byte per position each, laid out as EndgameTablebase describes
+///   directory  per table its signature (8 ASCII bytes, space padded) and file offset (8 bytes)
+///
+/// A table starts with one forward pass: mates are marked, in-table moves counted, and captures and promotions (which
+/// leave the table) scored from the smaller tables built before it. After that it works back from the mates one ply
+/// at a time. Everything that can move into a position lost in n plies wins in n + 1; a position all of whose moves
+/// lead to wins for the other side is lost, as late as its slowest move. Whatever never gets a result is a draw.
+///
+/// Every pass is split into ranges of positions shared out over a pool of threads. Two threads can count down the
+/// same position at once, so the move counts are updated atomically; a result is only ever written with the one
+/// value that position can end up with, so those writes need nothing extra.
+///
+/// Finished tables go straight to the file and are mapped back in for the tables that depend on them, so memory only
+/// ever holds the table being built.
+///
+///   java chess.TablebaseGenerator <file> [threads] [signature ... | all]    (3-piece tables when none are given)
+///
+
+public class TablebaseGenerator implements Closeable {
+
+    static final int MAGIC = 0x43485431; //"CHT1"
+    static final int HEADER_SIZE = 16;
+    static final int SIGNATURE_SIZE = 8;
+    static final int DIRECTORY_ENTRY_SIZE = SIGNATURE_SIZE + 8;
+
+    private static final String LETTERS = "PNBRQK";
+
+    //What a position's captures and promotions are worth to the side to move, when it has any: a result in the table
+    //encoding, or DRAW_AVAILABLE when the best of them is a draw
+    private static final int NO_CONVERSION = 0;
+    private static final int DRAW_AVAILABLE = 255;
+
+    private static final int MAX_RESULT = 254;
+    private static final int RANGES_PER_THREAD = 8;
+
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final FileChannel channel;
+    private final ExecutorService pool;
+    private final int threads;
+    private final EndgameTablebase finished = new EndgameTablebase();
+    private final Map<String, Long> offsets = new LinkedHashMap<>();
+    private long position = HEADER_SIZE;
+
+    public TablebaseGenerator(Path file, int threads) throws IOException {
+        if(threads < 1)
+            throw new IllegalArgumentException("need at least one generator thread");
+        this.threads = threads;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chess-tablebase");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Builds the table for signature, and first every table its captures and promotions lead into. Tables already built
+    //and material nobody can mate with are skipped.
+    public void generate(String signature) throws IOException, InterruptedException {
+        String canonical = EndgameTablebase.canonical(signature);
+        if(offsets.containsKey(canonical) || isDead(canonical))
+            return;
+        for(String child : children(canonical))
+            generate(child);
+
+        byte[] values = new Solver(canonical).solve();
+        long offset = position;
+        ByteBuffer out = ByteBuffer.wrap(values);
+        while(out.hasRemaining())
+            position += channel.write(out, position);
+        offsets.put(canonical, offset);
+        finished.add(canonical, channel.map(FileChannel.MapMode.READ_ONLY, offset, values.length));
+    }
+
+    //Every table with 3 up to maxPieces pieces that anyone can win
+    public static List<String> signatures(int maxPieces) {
+        TreeSet<String> out = new TreeSet<>();
+        String pieces = "QRBNPqrbnp";
+        for(int i = 0; i < pieces.length(); i++){
+            add(out, "" + pieces.charAt(i));
+            if(maxPieces < 4)
+                continue;
+            for(int j = i; j < pieces.length(); j++)
+                add(out, "" + pieces.charAt(i) + pieces.charAt(j));
+        }
+        return new ArrayList<>(out);
+    }
+
+    private static void add(TreeSet<String> out, String pieces){
+        StringBuilder white = new StringBuilder("K");
+        StringBuilder black = new StringBuilder("K");
+        for(char piece : pieces.toCharArray()){
+            if(Character.isUpperCase(piece))
+                white.append(piece);
+            else
+                black.append(Character.toUpperCase(piece));
+        }
+        String signature = EndgameTablebase.canonical(white.toString() + black);
+        if(!isDead(signature))
+            out.add(signature);
+    }
+
+    //No pawns, rooks or queens and at most one minor piece: mate is impossible, Board.isInsufficientMaterial says draw
+    private static boolean isDead(String signature){
+        int minors = 0;
+        for(int i = 0; i < signature.length(); i++){
+            char piece = signature.charAt(i);
+            if(piece == 'P' || piece == 'R' || piece == 'Q')
+                return false;
+            if(piece == 'N' || piece == 'B')
+                minors++;
+        }
+        return minors <= 1;
+    }
+
+    //Tables one capture or promotion away
+    private static List<String> children(String signature){
+        List<String> out = new ArrayList<>();
+        for(int i = 1; i < signature.length(); i++){
+            char piece = signature.charAt(i);
+            if(piece == 'K')
+                continue;
+            out.add(signature.substring(0, i) + signature.substring(i + 1));
+            if(piece == 'P'){
+                for(char promotion : "QRBN".toCharArray())
+                    out.add(signature.substring(0, i) + promotion + signature.substring(i + 1));
+            }
+        }
+        return out;
+    }
+
+    //Writes the directory and header and closes the file. The tablebase can be opened once this returns.
+    @Override
+    public void close() throws IOException {
+        try {
+            ByteBuffer directory = ByteBuffer.allocate(offsets.size() * DIRECTORY_ENTRY_SIZE);
+            for(Map.Entry<String, Long> table : offsets.entrySet()){
+                byte[] name = new byte[SIGNATURE_SIZE];
+                Arrays.fill(name, (byte) ' ');
+                byte[] signature = table.getKey().getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(signature, 0, name, 0, signature.length);
+                directory.put(name).putLong(table.getValue());
+            }
+            directory.flip();
+            long directoryOffset = position;
+            while(directory.hasRemaining())
+                position += channel.write(directory, position);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(offsets.size()).putLong(directoryOffset).flip();
+            while(header.hasRemaining())
+                channel.write(header, header.position());
+        } finally {
+            channel.close();
+            pool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length < 1){
+            System.err.println("usage: java chess.TablebaseGenerator <file> [threads] [signature ... | all]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<String> signatures = new ArrayList<>(Arrays.asList(args).subList(Math.min(2, args.length), args.length));
+        if(signatures.isEmpty())
+            signatures = signatures(3);
+        else if(signatures.equals(List.of("all")))
+            signatures = signatures(EndgameTablebase.MAX_PIECES);
+
+        try(TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]), threads)){
+            for(String signature : signatures){
+                long start = System.nanoTime();
+                generator.generate(signature);
+                System.out.printf("%s done, %d tables so far, %d ms%n", EndgameTablebase.canonical(signature),
+                        generator.offsets.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+
+    ///<editor-fold desc = "Solving one table">
+    /// Retrograde analysis of one table
+
+    private final class Solver {
+        private final int[] slots;
+        private final int pieces;
+        private final int size;
+
+        private final byte[] values;      //result so far, 0 until one is known
+        private final byte[] counts;      //in-table moves not yet known to lose
+        private final byte[] conversions; //best capture or promotion, see NO_CONVERSION
+
+        Solver(String signature) {
+            slots = EndgameTablebase.slots(signature);
+            pieces = slots.length;
+            size = EndgameTablebase.size(pieces);
+            values = new byte[size];
+            counts = new byte[size];
+            conversions = new byte[size];
+        }
+
+        byte[] solve() throws InterruptedException {
+            int lastConversion = 0;
+            for(int latest : run(this::initialize))
+                lastConversion = Math.max(lastConversion, latest);
+
+            //result is the table value being settled this pass: distance to mate + 1
+            for(int result = 1; ; result++){
+                if(result >= MAX_RESULT)
+                    throw new IllegalStateException("distance to mate too long to store");
+                int settled = result;
+                if(result > 1)
+                    run((from, to, board, moves, squares) -> settleConversions(from, to, settled));
+                int frontier = 0;
+                for(int count : run((from, to, board, moves, squares) -> retract(from, to, settled, board, squares)))
+                    frontier += count;
+                if(frontier == 0 && result >= lastConversion)
+                    break;
+            }
+            return values;
+        }
+
+        //First pass: marks invalid positions and mates, counts in-table moves and scores moves that leave the table.
+        //Returns the latest result a conversion can settle.
+        private int initialize(int from, int to, Board board, int[] moves, int[] squares){
+            int latest = 0;
+            for(int index = from; index < to; index++){
+                if(!setUp(board, index, squares)){
+                    values[index] = (byte) EndgameTablebase.INVALID;
+                    continue;
+                }
+
+                int count = MoveGenerator.generateLegal(board, moves);
+                if(count == 0){
+                    if(board.checkers() != 0)
+                        values[index] = 1;
+                    else
+                        conversions[index] = (byte) DRAW_AVAILABLE;
+                    continue;
+                }
+
+                int inTable = 0;
+                int best = NO_CONVERSION;
+                for(int i = 0; i < count; i++){
+                    int move = moves[i];
+                    if(!Move.isCapture(move) && Move.promotion(move) == 0){
+                        inTable++;
+                        continue;
+                    }
+                    board.makeMove(move);
+                    int child = finished.probe(board);
+                    board.unmakeMove(move);
+                    if(child == EndgameTablebase.UNKNOWN)
+                        throw new IllegalStateException("no table for a position after " + Move.toString(move));
+                    best = better(best, child == EndgameTablebase.DRAW ? DRAW_AVAILABLE : child + 1);
+                }
+                counts[index] = (byte) inTable;
+                conversions[index] = (byte) best;
+                if(best != NO_CONVERSION && best != DRAW_AVAILABLE)
+                    latest = Math.max(latest, best);
+            }
+            return latest;
+        }
+
+        //Settles positions whose best result comes from leaving the table, now that nothing faster can turn up: a win
+        //by conversion, or a loss once every in-table move is known to lose too
+        private int settleConversions(int from, int to, int result){
+            for(int index = from; index < to; index++){
+                if(values[index] == 0 && (conversions[index] & 0xFF) == result &&
+                        (EndgameTablebase.isWin(result) || counts[index] == 0))
+                    values[index] = (byte) result;
+            }
+            return 0;
+        }
+
+        //Walks every move back from the positions settled at result and passes the news to where they came from.
+        //Returns how many positions it walked back from.
+        private int retract(int from, int to, int result, Board board, int[] squares){
+            int frontier = 0;
+            for(int index = from; index < to; index++){
+                if((values[index] & 0xFF) != result)
+                    continue;
+                frontier++;
+                setUp(board, index, squares);
+                int mover = board.sideToMove ^ 1;
+
+                for(int slot = 0; slot < pieces; slot++){
+                    int piece = slots[slot];
+                    if(Board.colorOf(piece) != mover)
+                        continue;
+                    int square = squares[slot];
+                    for(long origins = origins(board, piece, square); origins != 0; origins &= origins - 1){
+                        squares[slot] = Long.numberOfTrailingZeros(origins);
+                        update(index(mover, squares), result);
+                    }
+                    squares[slot] = square;
+                }
+            }
+            return frontier;
+        }
+
+        //previous can move into a position settled at result
+        private void update(int previous, int result){
+            if(values[previous] != 0)
+                return;
+            if(EndgameTablebase.isLoss(result)){
+                values[previous] = (byte) (result + 1);
+                return;
+            }
+
+            //One more move known to lose. The last one settles the position, unless a capture or promotion does
+            //better, or only loses more slowly and so settles it later.
+            if(decrementCount(previous) != 1)
+                return;
+            int conversion = conversions[previous] & 0xFF;
+            if(conversion == NO_CONVERSION || (EndgameTablebase.isLoss(conversion) && conversion <= result + 1))
+                values[previous] = (byte) (result + 1);
+        }
+
+        //Count before taking one off. A compareAndSet loop rather than getAndAdd, which JDK 17's C2 gets wrong on byte
+        //arrays.
+        private int decrementCount(int index){
+            byte count;
+            do {
+                count = (byte) COUNTS.getVolatile(counts, index);
+            } while(!COUNTS.compareAndSet(counts, index, count, (byte) (count - 1)));
+            return count;
+        }
+
+        //Squares the piece could have come from by a move that stays in the table
+        private long origins(Board board, int piece, int square){
+            long empty = ~board.all;
+            switch(Board.kindOf(piece)){
+                case Board.PAWN: {
+                    boolean white = Board.colorOf(piece) == Board.WHITE;
+                    int behind = white ? square - 8 : square + 8;
+                    int rank = white ? Board.rankOf(square) : 7 - Board.rankOf(square);
+                    long out = 0;
+                    if(rank >= 2 && (empty & (1L << behind)) != 0){
+                        out |= 1L << behind;
+                        int start = white ? square - 16 : square + 16;
+                        if(rank == 3 && (empty & (1L << start)) != 0)
+                            out |= 1L << start;
+                    }
+                    return out;
+                }
+                case Board.KNIGHT:
+                    return Attacks.KNIGHT[square] & empty;
+                case Board.BISHOP:
+                    return Attacks.bishop(square, board.all) & empty;
+                case Board.ROOK:
+                    return Attacks.rook(square, board.all) & empty;
+                case Board.QUEEN:
+                    return (Attacks.bishop(square, board.all) | Attacks.rook(square, board.all)) & empty;
+                default:
+                    return Attacks.KING[square] & empty;
+            }
+        }
+
+        private int index(int side, int[] squares){
+            int index = side;
+            for(int slot = 0; slot < pieces; slot++)
+                index = (index << 6) | squares[slot];
+            return index;
+        }
+
+        //Puts the position at index on board and its squares in squares. False if it can't come up in a game: two
+        //pieces on a square, a pawn on its first or last rank, or the side not to move in check.
+        private boolean setUp(Board board, int index, int[] squares){
+            long seen = 0;
+            boolean possible = true;
+            for(int slot = pieces - 1; slot >= 0; slot--){
+                int square = (index >>> (6 * (pieces - 1 - slot))) & 63;
+                squares[slot] = square;
+                int rank = Board.rankOf(square);
+                if((seen & (1L << square)) != 0 || (Board.kindOf(slots[slot]) == Board.PAWN && (rank == 0 || rank == 7)))
+                    possible = false;
+                seen |= 1L << square;
+            }
+            if(!possible)
+                return false;
+
+            for(long bits = board.all; bits != 0; bits &= bits - 1)
+                board.remove(Long.numberOfTrailingZeros(bits));
+            board.sideToMove = index >>> (6 * pieces);
+            for(int slot = 0; slot < pieces; slot++)
+                board.put(slots[slot], squares[slot]);
+            return !Attacks.isSquareAttacked(board, board.kingSquare(board.sideToMove ^ 1), board.sideToMove);
+        }
+
+        //Splits the table into ranges and runs pass over them on the pool, one result per range
+        private List<Integer> run(Pass pass) throws InterruptedException {
+            int ranges = threads * RANGES_PER_THREAD;
+            List<Callable<Integer>> tasks = new ArrayList<>(ranges);
+            for(int i = 0; i < ranges; i++){
+                int from = (int) ((long) size * i / ranges);
+                int to = (int) ((long) size * (i + 1) / ranges);
+                tasks.add(() -> {
+                    Board board = new Board();
+                    board.castleRights = 0;
+                    return pass.run(from, to, board, new int[MoveGenerator.MAX_MOVES], new int[pieces]);
+                });
+            }
+
+            List<Integer> out = new ArrayList<>(ranges);
+            for(Future<Integer> task : pool.invokeAll(tasks)){
+                try {
+                    out.add(task.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("tablebase generation failed", e.getCause());
+                }
+            }
+            return out;
+        }
+    }
+
+    private interface Pass {
+        int run(int from, int to, Board board, int[] moves, int[] squares);
+    }
+
+    //The better of two conversion scores for the side choosing: the fastest win, then a draw, then the slowest loss
+    private static int better(int a, int b){
+        return rank(a) >= rank(b) ? a : b;
+    }
+
+    private static int rank(int conversion){
+        if(conversion == NO_CONVERSION)
+            return Integer.MIN_VALUE;
+        if(conversion == DRAW_AVAILABLE)
+            return 0;
+        return EndgameTablebase.isWin(conversion) ? 1000 - conversion : -1000 + conversion;
+    }
+
+    ///</editor-fold>
+}
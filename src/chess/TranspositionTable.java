@@ -0,0 +1,126 @@
+package chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+///
+/// Search results by position key, in one fixed block of longs sized up front, so memory stays the same however many
+/// games are searching. Any number of threads probe and store at once without locks.
+///
+/// Buckets hold two entries of two longs each: (key ^ data, data). A reader only believes an entry whose first long
+/// XORs back to the key it asked for, so when two threads write the same entry at once and it ends up half one and
+/// half the other, the entry simply reads as a miss. The first entry of a bucket keeps the deepest result (anything
+/// from an older search counts as shallow), the second always takes the newest.
+///
+/// data layout:
+///   bits 0-18   best move (Move encoding), 0 if none
+///   bits 19-34  score + 32768
+///   bits 35-42  depth searched
+///   bits 43-44  bound: EXACT, LOWER (score is at least this) or UPPER (at most this)
+///   bits 45-52  generation of the search that stored it
+///
+
+public final class TranspositionTable {
+
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+
+    //Opaque access: each long is read and written whole (which plain long array access doesn't promise), with no
+    //fences on top
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    private final long[] slots;
+    private final int bucketMask;
+    private int generation; //racy on purpose, a search that sees a stale generation only replaces a little less eagerly
+
+    //Uses at most megabytes of memory, rounded down to a power of two
+    public TranspositionTable(int megabytes) {
+        if(megabytes < 1)
+            throw new IllegalArgumentException("transposition table needs at least 1 MB");
+        long buckets = Math.min(MAX_BUCKETS, Long.highestOneBit(megabytes * (1L << 20) / 32));
+        slots = new long[(int) buckets * 4];
+        bucketMask = (int) buckets - 1;
+    }
+
+    //The table every GameSession's engine shares, sized by -Dchess.hashMb (64 MB by default)
+    public static TranspositionTable shared() {
+        return Shared.TABLE;
+    }
+
+    private static final class Shared {
+        static final TranspositionTable TABLE = new TranspositionTable(Integer.getInteger("chess.hashMb", 64));
+    }
+
+    //Call once per root search so older entries give way to newer ones
+    void newSearch(){
+        generation = (generation + 1) & 255;
+    }
+
+    //data for key (read with the accessors below), or 0 if it isn't stored
+    long probe(long key){
+        int base = ((int) key & bucketMask) << 2;
+        for(int entry = base; entry < base + 4; entry += 2){
+            long data = (long) SLOTS.getOpaque(slots, entry + 1);
+            if(data != 0 && ((long) SLOTS.getOpaque(slots, entry) ^ data) == key)
+                return data;
+        }
+        return 0;
+    }
+
+    void store(long key, int move, int score, int depth, int bound){
+        int base = ((int) key & bucketMask) << 2;
+        long kept = (long) SLOTS.getOpaque(slots, base + 1);
+        boolean sameKey = ((long) SLOTS.getOpaque(slots, base) ^ kept) == key;
+        int entry = kept == 0 || sameKey || depth >= depth(kept) || generation(kept) != generation ? base : base + 2;
+
+        //Don't lose the best move we had for this position just because this search didn't find one
+        long old = (long) SLOTS.getOpaque(slots, entry + 1);
+        if(move == 0 && ((long) SLOTS.getOpaque(slots, entry) ^ old) == key)
+            move = move(old);
+
+        long data = (move & 0x7FFFFL) | ((long) (score + 32768) << 19) | ((long) depth << 35) | ((long) bound << 43) |
+                ((long) generation << 45);
+        SLOTS.setOpaque(slots, entry + 1, data);
+        SLOTS.setOpaque(slots, entry, key ^ data);
+    }
+
+    static int move(long data){
+        return (int) (data & 0x7FFFF);
+    }
+
+    static int score(long data){
+        return (int) ((data >>> 19) & 0xFFFF) - 32768;
+    }
+
+    static int depth(long data){
+        return (int) ((data >>> 35) & 0xFF);
+    }
+
+    static int bound(long data){
+        return (int) ((data >>> 43) & 3);
+    }
+
+    private static int generation(long data){
+        return (int) ((data >>> 45) & 0xFF);
+    }
+
+    //Entries per thousand filled in by the current search, sampled from the start of the table
+    public int permilleUsed() {
+        int used = 0;
+        int sampled = Math.min(1000, slots.length / 2);
+        for(int entry = 0; entry < sampled; entry++){
+            long data = (long) SLOTS.getOpaque(slots, entry * 2 + 1);
+            if(data != 0 && generation(data) == generation)
+                used++;
+        }
+        return used * 1000 / sampled;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+import java.util.Arrays;
+
+///
+/// Compact stand-ins for ReturnPlay.piecesOnBoard, for clients that keep their own copy of the board.
+///
+///   snapshot  64 bytes, one per square a1..h8: 0 if empty, otherwise piece code + 1 (WP = 1 ... BK = 12)
+///   delta     1 byte count n, then n (square, new content) byte pairs using the same content codes. A plain move
+///             or capture changes 2 squares, en passant 3 and castling 4, and a promotion just lands the new piece,
+///             so a delta is never more than 9 bytes. An illegal move changes nothing and comes back as just [0].
+///
+/// applyDelta keeps a snapshot in step, and render draws one exactly the way PlayChess.printBoard draws the piece list.
+///
+
+public final class WireFormat {
+
+    //What GameSession hands back in each ReturnPlay, see GameSession.setReturnFormat
+    public enum Mode { PIECES, DELTA, SNAPSHOT }
+
+    public static final int SNAPSHOT_SIZE = 64;
+    public static final int MAX_DELTA_SIZE = 9;
+
+    private static final String[] NAMES = {"wp", "wN", "wB", "wR", "wQ", "wK", "bp", "bN", "bB", "bR", "bQ", "bK"};
+
+    private WireFormat() {}
+
+    static byte[] snapshot(Board board){
+        byte[] out = new byte[SNAPSHOT_SIZE];
+        for(int square = 0; square < 64; square++)
+            out[square] = (byte) (board.pieceAt(square) + 1);
+        return out;
+    }
+
+    //Squares move changed, read off board after the move was made. move 0 (a1 to a1) means nothing was played.
+    static byte[] delta(Board board, int move){
+        if(move == 0)
+            return new byte[] {0};
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        byte[] out = new byte[MAX_DELTA_SIZE];
+        int count = 0;
+        count = put(out, count, board, from);
+        count = put(out, count, board, to);
+        if(Move.isEnPassant(move))
+            count = put(out, count, board, Board.square(Board.fileOf(to), Board.rankOf(from)));
+        if(Move.isCastle(move)){
+            count = put(out, count, board, to > from ? from + 3 : from - 4);
+            count = put(out, count, board, (from + to) / 2);
+        }
+        out[0] = (byte) count;
+        return Arrays.copyOf(out, 1 + 2 * count);
+    }
+
+    private static int put(byte[] out, int count, Board board, int square){
+        out[1 + 2 * count] = (byte) square;
+        out[2 + 2 * count] = (byte) (board.pieceAt(square) + 1);
+        return count + 1;
+    }
+
+    //Brings snapshot up to date with a delta produced for the position it shows
+    public static void applyDelta(byte[] snapshot, byte[] delta){
+        for(int i = 0; i < delta[0]; i++)
+            snapshot[delta[1 + 2 * i]] = delta[2 + 2 * i];
+    }
+
+    //Same text PlayChess.printBoard prints, rank 8 at the top
+    public static String render(byte[] snapshot){
+        StringBuilder out = new StringBuilder(9 * 27);
+        for(int rank = 7; rank >= 0; rank--){
+            for(int file = 0; file < 8; file++){
+                int content = snapshot[Board.square(file, rank)];
+                if(content != 0)
+                    out.append(NAMES[content - 1]);
+                else
+                    out.append((file + rank) % 2 == 0 ? "##" : "  ");
+                out.append(' ');
+            }
+            out.append(rank + 1).append('\n');
+        }
+        return out.append(" a  b  c  d  e  f  g  h\n").toString();
+    }
+}
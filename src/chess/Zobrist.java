@@ -0,0 +1,43 @@
+package chess;
+
+///
+/// Zobrist keys for Board.hash. The seed is fixed so a position hashes to the same 64-bit key in every JVM,
+/// which lets keys be stored and compared across processes.
+///
+
+final class Zobrist {
+
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLE = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        long[] seed = {0x2545F4914F6CDD1DL};
+        for(long[] piece : PIECE_SQUARE)
+            for(int square = 0; square < 64; square++)
+                piece[square] = next(seed);
+
+        //Each right gets its own key and a set of rights is the XOR of its members
+        long[] rights = {next(seed), next(seed), next(seed), next(seed)};
+        for(int mask = 0; mask < 16; mask++)
+            for(int bit = 0; bit < 4; bit++)
+                if((mask & (1 << bit)) != 0)
+                    CASTLE[mask] ^= rights[bit];
+
+        for(int file = 0; file < 8; file++)
+            EN_PASSANT_FILE[file] = next(seed);
+
+        BLACK_TO_MOVE = next(seed);
+    }
+
+    private Zobrist() {}
+
+    //splitmix64
+    private static long next(long[] state){
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}